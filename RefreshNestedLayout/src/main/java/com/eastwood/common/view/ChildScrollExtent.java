@@ -0,0 +1,106 @@
+package com.eastwood.common.view;
+
+import android.support.v4.widget.NestedScrollView;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AbsListView;
+import android.widget.ScrollView;
+
+/**
+ * How far the refreshable view is from the end of its content, for load more prefetching.
+ */
+final class ChildScrollExtent {
+
+    static final int UNKNOWN = -1;
+
+    private ChildScrollExtent() {
+    }
+
+    /**
+     * @return the number of items after the last visible one, or {@link #UNKNOWN} if the view has no items.
+     */
+    static int itemsBelow(View child) {
+        if (child instanceof AbsListView) {
+            AbsListView listView = (AbsListView) child;
+            if (listView.getChildCount() == 0) {
+                return UNKNOWN;
+            }
+            return listView.getCount() - 1 - listView.getLastVisiblePosition();
+        }
+        if (ChildScrollStrategies.RECYCLER_VIEW_AVAILABLE && child instanceof RecyclerView) {
+            return RecyclerViewExtent.itemsBelow((RecyclerView) child);
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * @return the height of the content below the visible area, 0 at the end, or {@link #UNKNOWN} if it can't be
+     * measured or there is no content.
+     */
+    static int pixelsBelow(View child) {
+        if (child instanceof AbsListView && ((AbsListView) child).getCount() == 0) {
+            return UNKNOWN;
+        }
+        if (child instanceof ScrollView || child instanceof NestedScrollView) {
+            ViewGroup scrollView = (ViewGroup) child;
+            if (scrollView.getChildCount() == 0) {
+                return 0;
+            }
+            int bottom = scrollView.getChildAt(0).getBottom() + scrollView.getPaddingBottom();
+            return Math.max(0, bottom - scrollView.getScrollY() - scrollView.getHeight());
+        }
+        if (ChildScrollStrategies.RECYCLER_VIEW_AVAILABLE && child instanceof RecyclerView) {
+            return RecyclerViewExtent.pixelsBelow((RecyclerView) child);
+        }
+        return child.canScrollVertically(1) ? UNKNOWN : 0;
+    }
+
+    /**
+     * @return a value that changes whenever the content of the view scrolls, to tell its own scrolls apart from
+     * those of other views in the window.
+     */
+    static long scrollPosition(View child) {
+        if (child instanceof AbsListView) {
+            AbsListView listView = (AbsListView) child;
+            if (listView.getChildCount() == 0) {
+                return 0;
+            }
+            return ((long) listView.getFirstVisiblePosition() << 32) | (listView.getChildAt(0).getTop() & 0xffffffffL);
+        }
+        if (ChildScrollStrategies.RECYCLER_VIEW_AVAILABLE && child instanceof RecyclerView) {
+            return ((RecyclerView) child).computeVerticalScrollOffset();
+        }
+        return child.getScrollY();
+    }
+
+    /**
+     * Kept in its own class so RecyclerView is only loaded when the app ships it.
+     */
+    static final class RecyclerViewExtent {
+
+        static int itemsBelow(RecyclerView recyclerView) {
+            RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+            if (!(layoutManager instanceof LinearLayoutManager) || layoutManager.getItemCount() == 0) {
+                return UNKNOWN;
+            }
+            int last = ((LinearLayoutManager) layoutManager).findLastVisibleItemPosition();
+            if (last == RecyclerView.NO_POSITION) {
+                return UNKNOWN;
+            }
+            return layoutManager.getItemCount() - 1 - last;
+        }
+
+        static int pixelsBelow(RecyclerView recyclerView) {
+            RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+            if (layoutManager == null || layoutManager.getItemCount() == 0) {
+                return UNKNOWN;
+            }
+            int below = recyclerView.computeVerticalScrollRange() - recyclerView.computeVerticalScrollOffset()
+                    - recyclerView.computeVerticalScrollExtent();
+            return Math.max(0, below);
+        }
+    }
+
+}
@@ -0,0 +1,153 @@
+package com.eastwood.common.view;
+
+import android.support.annotation.NonNull;
+import android.support.v4.widget.NestedScrollView;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.widget.AbsListView;
+import android.widget.ScrollView;
+
+import java.util.ArrayList;
+
+/**
+ * Registry of {@link ChildScrollStrategy ChildScrollStrategies} by child type. {@link RefreshNestedLayout}
+ * resolves the strategy once per child, the first registered type the child is an instance of wins.
+ * <p>
+ * Built in are cheap checks for {@link AbsListView}, {@link RecyclerView} (when it is on the classpath),
+ * {@link ScrollView} and {@link NestedScrollView}. Anything else falls back to {@link #DEFAULT}.
+ */
+public final class ChildScrollStrategies {
+
+    /**
+     * {@link View#canScrollVertically(int)}, which works for every view.
+     */
+    public static final ChildScrollStrategy DEFAULT = new ChildScrollStrategy() {
+
+        @Override
+        public boolean canScrollUp(@NonNull View child) {
+            return child.canScrollVertically(-1);
+        }
+    };
+
+    /**
+     * First visible position and the top of the first child.
+     */
+    public static final ChildScrollStrategy ABS_LIST_VIEW = new ChildScrollStrategy() {
+
+        @Override
+        public boolean canScrollUp(@NonNull View child) {
+            AbsListView listView = (AbsListView) child;
+            if (listView.getChildCount() == 0) {
+                return false;
+            }
+            return listView.getFirstVisiblePosition() > 0 || listView.getChildAt(0).getTop() < listView.getListPaddingTop();
+        }
+    };
+
+    /**
+     * The scroll position of a single-child scrolling container.
+     */
+    public static final ChildScrollStrategy SCROLL_Y = new ChildScrollStrategy() {
+
+        @Override
+        public boolean canScrollUp(@NonNull View child) {
+            return child.getScrollY() > 0;
+        }
+    };
+
+    static final boolean RECYCLER_VIEW_AVAILABLE = isRecyclerViewAvailable();
+
+    private static final ArrayList<Class<?>> sTypes = new ArrayList<>();
+    private static final ArrayList<ChildScrollStrategy> sStrategies = new ArrayList<>();
+
+    static {
+        register(AbsListView.class, ABS_LIST_VIEW);
+        register(ScrollView.class, SCROLL_Y);
+        register(NestedScrollView.class, SCROLL_Y);
+        if (RECYCLER_VIEW_AVAILABLE) {
+            register(RecyclerView.class, RecyclerViewStrategy.INSTANCE);
+        }
+    }
+
+    private ChildScrollStrategies() {
+    }
+
+    /**
+     * Register a strategy for a child type. Later registrations take precedence, so apps can
+     * replace the built in checks or add one for a subclass.
+     */
+    public static synchronized void register(@NonNull Class<? extends View> type, @NonNull ChildScrollStrategy strategy) {
+        sTypes.add(0, type);
+        sStrategies.add(0, strategy);
+    }
+
+    @NonNull
+    public static synchronized ChildScrollStrategy forView(@NonNull View child) {
+        for (int i = 0; i < sTypes.size(); i++) {
+            if (sTypes.get(i).isInstance(child)) {
+                return sStrategies.get(i);
+            }
+        }
+        return DEFAULT;
+    }
+
+    /**
+     * Stop the fling of the built in scrolling types. Other children keep their fling, only their nested scroll
+     * can be stopped.
+     */
+    static void stopFling(@NonNull View child) {
+        if (RECYCLER_VIEW_AVAILABLE && child instanceof RecyclerView) {
+            RecyclerViewStrategy.stopFling((RecyclerView) child);
+        } else if (child instanceof NestedScrollView) {
+            // a scroll by nothing replaces the fling on its scroller
+            ((NestedScrollView) child).smoothScrollBy(0, 0);
+        } else if (child instanceof ScrollView) {
+            ((ScrollView) child).smoothScrollBy(0, 0);
+        } else if (child instanceof AbsListView) {
+            ((AbsListView) child).smoothScrollBy(0, 0);
+        }
+    }
+
+    private static boolean isRecyclerViewAvailable() {
+        try {
+            Class.forName("android.support.v7.widget.RecyclerView");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Kept in its own class so RecyclerView is only loaded when the app ships it.
+     */
+    static final class RecyclerViewStrategy implements ChildScrollStrategy {
+
+        static final RecyclerViewStrategy INSTANCE = new RecyclerViewStrategy();
+
+        static void stopFling(RecyclerView recyclerView) {
+            recyclerView.stopScroll();
+        }
+
+        @Override
+        public boolean canScrollUp(@NonNull View child) {
+            RecyclerView recyclerView = (RecyclerView) child;
+            RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+            if (layoutManager instanceof LinearLayoutManager) {
+                LinearLayoutManager linearLayoutManager = (LinearLayoutManager) layoutManager;
+                if (linearLayoutManager.getOrientation() == LinearLayoutManager.VERTICAL
+                        && !linearLayoutManager.getReverseLayout()) {
+                    // the first laid out child is the top most one
+                    if (linearLayoutManager.getChildCount() == 0) {
+                        return false;
+                    }
+                    View first = linearLayoutManager.getChildAt(0);
+                    return linearLayoutManager.getPosition(first) > 0
+                            || linearLayoutManager.getDecoratedTop(first) < recyclerView.getPaddingTop();
+                }
+            }
+            return recyclerView.canScrollVertically(-1);
+        }
+    }
+
+}
@@ -0,0 +1,15 @@
+package com.eastwood.common.view;
+
+import android.support.annotation.NonNull;
+import android.view.View;
+
+/**
+ * Answers whether the refreshable child can still scroll up, with a check suited to the child's type.
+ *
+ * @see ChildScrollStrategies
+ */
+public interface ChildScrollStrategy {
+
+    boolean canScrollUp(@NonNull View child);
+
+}
@@ -0,0 +1,145 @@
+package com.eastwood.common.view;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v4.util.SimpleArrayMap;
+import android.support.v4.view.ViewCompat;
+import android.view.Choreographer;
+import android.view.Display;
+import android.view.View;
+import android.view.WindowManager;
+
+import com.eastwood.common.view.core.FrameClock;
+
+/**
+ * {@link FrameClock} backed by {@link Choreographer}, so callbacks receive the vsync timestamp of the frame
+ * they will be shown on. Falls back to a {@link Handler} ticking at the display refresh rate before Jelly Bean.
+ * <p>
+ * The frame interval is read from the display on every call, so animations started after a 90/120 Hz display
+ * switched its rate use the new one.
+ */
+public class ChoreographerFrameClock implements FrameClock {
+
+    private static final float DEFAULT_REFRESH_RATE = 60f;
+
+    private final View mView;
+    private final WindowManager mWindowManager;
+    private final Handler mHandler;
+
+    // FrameCallback -> platform callback, created once per callback
+    private final SimpleArrayMap<FrameCallback, Object> mCallbacks = new SimpleArrayMap<>();
+
+    /**
+     * A clock that follows the default display of the context.
+     */
+    public ChoreographerFrameClock(Context context) {
+        this(context, null);
+    }
+
+    /**
+     * A clock that follows the display the view is attached to, or the default display while it is detached.
+     */
+    public ChoreographerFrameClock(View view) {
+        this(view.getContext(), view);
+    }
+
+    private ChoreographerFrameClock(Context context, View view) {
+        mView = view;
+        mWindowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        mHandler = new Handler(Looper.getMainLooper());
+    }
+
+    @Override
+    public void postFrameCallback(FrameCallback callback) {
+        postFrameCallbackDelayed(callback, 0);
+    }
+
+    @Override
+    public void postFrameCallbackDelayed(FrameCallback callback, long delayMillis) {
+        // posting a pending callback again replaces it, neither Choreographer nor Handler do that on their own
+        removeFrameCallback(callback);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            Choreographer.getInstance().postFrameCallbackDelayed(getChoreographerCallback(callback), delayMillis);
+        } else {
+            mHandler.postDelayed(getHandlerCallback(callback), delayMillis + getFrameIntervalNanos() / 1000000L);
+        }
+    }
+
+    @Override
+    public void removeFrameCallback(FrameCallback callback) {
+        Object platformCallback = mCallbacks.get(callback);
+        if (platformCallback == null) {
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            Choreographer.getInstance().removeFrameCallback((Choreographer.FrameCallback) platformCallback);
+        } else {
+            mHandler.removeCallbacks((Runnable) platformCallback);
+        }
+    }
+
+    @Override
+    public long getFrameIntervalNanos() {
+        Display display = mView != null ? ViewCompat.getDisplay(mView) : null;
+        if (display == null && mWindowManager != null) {
+            display = mWindowManager.getDefaultDisplay();
+        }
+        float refreshRate = display != null ? display.getRefreshRate() : 0f;
+        if (refreshRate < 1f) {
+            refreshRate = DEFAULT_REFRESH_RATE;
+        }
+        return (long) (1000000000L / refreshRate);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private Choreographer.FrameCallback getChoreographerCallback(FrameCallback callback) {
+        ChoreographerCallback platformCallback = (ChoreographerCallback) mCallbacks.get(callback);
+        if (platformCallback == null) {
+            platformCallback = new ChoreographerCallback(callback);
+            mCallbacks.put(callback, platformCallback);
+        }
+        return platformCallback;
+    }
+
+    private Runnable getHandlerCallback(FrameCallback callback) {
+        HandlerCallback platformCallback = (HandlerCallback) mCallbacks.get(callback);
+        if (platformCallback == null) {
+            platformCallback = new HandlerCallback(callback);
+            mCallbacks.put(callback, platformCallback);
+        }
+        return platformCallback;
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static final class ChoreographerCallback implements Choreographer.FrameCallback {
+
+        private final FrameCallback mCallback;
+
+        ChoreographerCallback(FrameCallback callback) {
+            mCallback = callback;
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mCallback.doFrame(frameTimeNanos);
+        }
+    }
+
+    private static final class HandlerCallback implements Runnable {
+
+        private final FrameCallback mCallback;
+
+        HandlerCallback(FrameCallback callback) {
+            mCallback = callback;
+        }
+
+        @Override
+        public void run() {
+            mCallback.doFrame(System.nanoTime());
+        }
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.eastwood.common.view;
+
+import android.content.Context;
+import android.support.v4.util.SimpleArrayMap;
+
+import java.lang.reflect.Constructor;
+
+/**
+ * Header constructors resolved once per class name, like LayoutInflater caches view constructors. A cached
+ * constructor is only reused while its class is visible to the class loader of the context asking for it.
+ */
+final class HeaderConstructorCache<T> {
+
+    // classes of the framework itself are visible to every context
+    private static final ClassLoader FRAMEWORK_CLASS_LOADER = Context.class.getClassLoader();
+
+    private final Class<T> mType;
+    private final Class<?>[] mParameterTypes;
+    private final SimpleArrayMap<String, Constructor<? extends T>> mConstructors = new SimpleArrayMap<>();
+
+    HeaderConstructorCache(Class<T> type, Class<?>... parameterTypes) {
+        mType = type;
+        mParameterTypes = parameterTypes;
+    }
+
+    Constructor<? extends T> get(Context context, String name) throws ClassNotFoundException, NoSuchMethodException {
+        synchronized (mConstructors) {
+            Constructor<? extends T> c = mConstructors.get(name);
+            if (c != null && !verifyClassLoader(context, c)) {
+                // the name now resolves through another loader, e.g. a dynamic feature
+                mConstructors.remove(name);
+                c = null;
+            }
+            if (c == null) {
+                final Class<? extends T> clazz = Class.forName(name, false, context.getClassLoader()).asSubclass(mType);
+                c = clazz.getConstructor(mParameterTypes);
+                c.setAccessible(true);
+                mConstructors.put(name, c);
+            }
+            return c;
+        }
+    }
+
+    /**
+     * @return true if the constructor's class was loaded by the framework or by the context's class loader or
+     * one of its parents, the same check LayoutInflater runs on its constructor cache.
+     */
+    private static boolean verifyClassLoader(Context context, Constructor<?> constructor) {
+        final ClassLoader constructorLoader = constructor.getDeclaringClass().getClassLoader();
+        if (constructorLoader == FRAMEWORK_CLASS_LOADER) {
+            return true;
+        }
+        ClassLoader cl = context.getClassLoader();
+        while (cl != null) {
+            if (constructorLoader == cl) {
+                return true;
+            }
+            cl = cl.getParent();
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,188 @@
+package com.eastwood.common.view;
+
+import com.eastwood.common.view.core.FrameClock;
+
+/**
+ * Sits between the engine and the {@link RefreshHeader}: {@code alreadyToRefresh} is only sent when it changes,
+ * {@code onPull} is merged to at most one call per frame and optionally rounded to a step, so headers don't
+ * redo work for values that never reach the screen.
+ * <p>
+ * The header may be null while a pooled header is not attached, calls are dropped then.
+ */
+final class HeaderDispatcher implements FrameClock.FrameCallback {
+
+    private static final int READY_UNKNOWN = -1;
+
+    private static final String TRACE_ALREADY_TO_REFRESH = "RNL header alreadyToRefresh";
+    private static final String TRACE_ON_REFRESH_BEGIN = "RNL header onRefreshBegin";
+    private static final String TRACE_ON_REFRESH_FINISH = "RNL header onRefreshFinish";
+    private static final String TRACE_ON_REFRESH_CANCEL = "RNL header onRefreshCancel";
+    private static final String TRACE_ON_PULL = "RNL header onPull";
+
+    private final RefreshNestedLayout mLayout;
+    private RefreshHeader mHeader;
+    private FrameClock mFrameClock;
+
+    private boolean mCoalescePull = true;
+    private float mPullStep;
+
+    private float mPendingPull;
+    private boolean mPullPending;
+    private float mLastPull = Float.NaN;
+    private int mLastReady = READY_UNKNOWN;
+
+    HeaderDispatcher(RefreshNestedLayout layout, FrameClock frameClock) {
+        mLayout = layout;
+        mFrameClock = frameClock;
+    }
+
+    void setHeader(RefreshHeader header) {
+        cancelPendingPull();
+        mHeader = header;
+        forget();
+    }
+
+    void setFrameClock(FrameClock frameClock) {
+        flushPull();
+        mFrameClock = frameClock;
+    }
+
+    void setCoalescePull(boolean coalescePull) {
+        if (!coalescePull) {
+            flushPull();
+        }
+        mCoalescePull = coalescePull;
+    }
+
+    void setPullStep(float pullStep) {
+        mPullStep = pullStep;
+        mLastPull = Float.NaN;
+    }
+
+    float getPullStep() {
+        return mPullStep;
+    }
+
+    void onPull(float scrollValue) {
+        if (mPullStep > 0) {
+            scrollValue = Math.round(scrollValue / mPullStep) * mPullStep;
+        }
+        if (!mCoalescePull) {
+            dispatchPull(scrollValue);
+            return;
+        }
+        mPendingPull = scrollValue;
+        if (!mPullPending) {
+            mPullPending = true;
+            // input is handled before the animation callbacks of the same frame, so this still lands before draw
+            mFrameClock.postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (mPullPending) {
+            mPullPending = false;
+            dispatchPull(mPendingPull);
+        }
+    }
+
+    void alreadyToRefresh(boolean alreadyToRefresh) {
+        if (mHeader == null) {
+            return;
+        }
+        int ready = alreadyToRefresh ? 1 : 0;
+        if (ready == mLastReady) {
+            return;
+        }
+        // keep the order the header would have seen without merging
+        flushPull();
+        mLastReady = ready;
+        long start = beginCallback(TRACE_ALREADY_TO_REFRESH);
+        mHeader.alreadyToRefresh(alreadyToRefresh);
+        endCallback(start);
+    }
+
+    void onRefreshBegin() {
+        if (mHeader == null) {
+            return;
+        }
+        flushPull();
+        forget();
+        long start = beginCallback(TRACE_ON_REFRESH_BEGIN);
+        mHeader.onRefreshBegin();
+        endCallback(start);
+    }
+
+    void onRefreshFinish() {
+        if (mHeader == null) {
+            return;
+        }
+        flushPull();
+        forget();
+        long start = beginCallback(TRACE_ON_REFRESH_FINISH);
+        mHeader.onRefreshFinish();
+        endCallback(start);
+    }
+
+    void onRefreshCancel() {
+        if (mHeader == null) {
+            return;
+        }
+        flushPull();
+        forget();
+        long start = beginCallback(TRACE_ON_REFRESH_CANCEL);
+        mHeader.onRefreshCancel();
+        endCallback(start);
+    }
+
+    private long beginCallback(String section) {
+        mLayout.getTracer().beginSection(section);
+        final MetricsRecorder recorder = mLayout.getMetricsRecorder();
+        return recorder == null ? 0 : recorder.beginHeaderCallback();
+    }
+
+    private void endCallback(long start) {
+        final MetricsRecorder recorder = mLayout.getMetricsRecorder();
+        if (recorder != null) {
+            recorder.endHeaderCallback(start);
+        }
+        mLayout.getTracer().endSection();
+    }
+
+    /**
+     * The header resets itself on lifecycle callbacks, so the next values have to be sent even if unchanged.
+     */
+    private void forget() {
+        mLastPull = Float.NaN;
+        mLastReady = READY_UNKNOWN;
+    }
+
+    private void flushPull() {
+        if (mPullPending) {
+            cancelPendingPull();
+            dispatchPull(mPendingPull);
+        }
+    }
+
+    private void cancelPendingPull() {
+        if (mPullPending) {
+            mPullPending = false;
+            mFrameClock.removeFrameCallback(this);
+        }
+    }
+
+    private void dispatchPull(float scrollValue) {
+        if (mHeader == null) {
+            return;
+        }
+        if (scrollValue == mLastPull) {
+            return;
+        }
+        mLastPull = scrollValue;
+        long start = beginCallback(TRACE_ON_PULL);
+        mHeader.onPull(scrollValue);
+        endCallback(start);
+    }
+
+}
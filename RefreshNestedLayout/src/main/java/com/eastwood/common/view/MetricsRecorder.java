@@ -0,0 +1,124 @@
+package com.eastwood.common.view;
+
+import com.eastwood.common.view.core.FrameClock;
+import com.eastwood.common.view.core.RefreshState;
+
+/**
+ * Collects {@link RefreshMetrics} for the current drag or animation. Only exists while a listener is set.
+ * <p>
+ * Frames are counted from the frame clock, which ticks on every vsync while a session is open, so a finger resting
+ * on the screen is not mistaken for dropped frames.
+ */
+final class MetricsRecorder implements FrameClock.FrameCallback {
+
+    private static final int NO_SESSION = -1;
+
+    private final RefreshNestedLayout.OnRefreshMetricsListener mListener;
+    private final RefreshMetrics mMetrics = new RefreshMetrics();
+
+    private int mSession = NO_SESSION;
+    private FrameClock mFrameClock;
+    private long mStartNanos;
+    private long mLastFrameNanos;
+    private long mBudgetNanos;
+
+    MetricsRecorder(RefreshNestedLayout.OnRefreshMetricsListener listener) {
+        mListener = listener;
+    }
+
+    void onStateChanged(RefreshState newState, FrameClock frameClock) {
+        switch (newState) {
+            case MANUAL_SCROLLING:
+                begin(RefreshMetrics.TYPE_DRAG, frameClock);
+                break;
+            case SCROLL_TO_BACK:
+            case SCROLL_TO_REFRESH:
+                if (mSession != RefreshMetrics.TYPE_ANIMATION) {
+                    begin(RefreshMetrics.TYPE_ANIMATION, frameClock);
+                }
+                break;
+            default:
+                end();
+                break;
+        }
+    }
+
+    private void begin(int type, FrameClock frameClock) {
+        end();
+        mSession = type;
+        mMetrics.reset(type);
+        mStartNanos = System.nanoTime();
+        startFrames(frameClock);
+    }
+
+    /**
+     * Report the open session, if any, and stop counting frames.
+     */
+    void end() {
+        if (mSession == NO_SESSION) {
+            return;
+        }
+        mSession = NO_SESSION;
+        mFrameClock.removeFrameCallback(this);
+        mFrameClock = null;
+        mMetrics.mDurationNanos = System.nanoTime() - mStartNanos;
+        mListener.onRefreshMetrics(mMetrics);
+    }
+
+    void setFrameClock(FrameClock frameClock) {
+        if (mSession != NO_SESSION) {
+            mFrameClock.removeFrameCallback(this);
+            startFrames(frameClock);
+        }
+    }
+
+    private void startFrames(FrameClock frameClock) {
+        final long frameIntervalNanos = frameClock.getFrameIntervalNanos();
+        mFrameClock = frameClock;
+        mLastFrameNanos = 0;
+        mBudgetNanos = frameIntervalNanos + frameIntervalNanos / 2;
+        frameClock.postFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (mSession == NO_SESSION) {
+            return;
+        }
+        mMetrics.mFrames++;
+        if (mLastFrameNanos != 0 && frameTimeNanos - mLastFrameNanos > mBudgetNanos) {
+            // the frames in between were dropped
+            mMetrics.mFramesOverBudget++;
+        }
+        mLastFrameNanos = frameTimeNanos;
+        mFrameClock.postFrameCallback(this);
+    }
+
+    long beginBodyScroll() {
+        return System.nanoTime();
+    }
+
+    void endBodyScroll(long startNanos) {
+        if (mSession != NO_SESSION) {
+            mMetrics.mBodyScrollNanos += System.nanoTime() - startNanos;
+        }
+    }
+
+    long beginHeaderCallback() {
+        return System.nanoTime();
+    }
+
+    void endHeaderCallback(long startNanos) {
+        if (mSession != NO_SESSION) {
+            mMetrics.mHeaderCallbackNanos += System.nanoTime() - startNanos;
+        }
+    }
+
+    void onLayout() {
+        // counted at the pass rather than at requestLayout, which returns early while a layout is already pending
+        if (mSession != NO_SESSION) {
+            mMetrics.mLayoutCount++;
+        }
+    }
+
+}
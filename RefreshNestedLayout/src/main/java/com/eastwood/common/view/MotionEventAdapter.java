@@ -0,0 +1,49 @@
+package com.eastwood.common.view;
+
+import android.view.MotionEvent;
+
+import com.eastwood.common.view.core.TouchEvent;
+
+/**
+ * Presents the current {@link MotionEvent} to the engine, reused for every event.
+ */
+final class MotionEventAdapter implements TouchEvent {
+
+    private MotionEvent mEvent;
+
+    MotionEventAdapter set(MotionEvent event) {
+        mEvent = event;
+        return this;
+    }
+
+    @Override
+    public int getActionMasked() {
+        return mEvent.getActionMasked();
+    }
+
+    @Override
+    public int getActionIndex() {
+        return mEvent.getActionIndex();
+    }
+
+    @Override
+    public int getPointerCount() {
+        return mEvent.getPointerCount();
+    }
+
+    @Override
+    public int getPointerId(int pointerIndex) {
+        return mEvent.getPointerId(pointerIndex);
+    }
+
+    @Override
+    public int findPointerIndex(int pointerId) {
+        return mEvent.findPointerIndex(pointerId);
+    }
+
+    @Override
+    public float getY(int pointerIndex) {
+        return mEvent.getY(pointerIndex);
+    }
+
+}
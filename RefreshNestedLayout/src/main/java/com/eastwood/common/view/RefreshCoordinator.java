@@ -0,0 +1,124 @@
+package com.eastwood.common.view;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.eastwood.common.view.core.FrameClock;
+import com.eastwood.common.view.core.SharedFrameClock;
+
+import java.util.ArrayList;
+
+/**
+ * Drives the header animations of every {@link RefreshNestedLayout} of a window from one frame callback, applies
+ * their header offsets in one pass at the end of each frame, and limits how many auto refreshes run at once.
+ * <p>
+ * Layouts inflated with a context that implements {@link Owner} use its coordinator, others can be given one with
+ * {@link RefreshNestedLayout#setRefreshCoordinator(RefreshCoordinator)}. Use it on the UI thread only.
+ */
+public final class RefreshCoordinator {
+
+    public interface Owner {
+
+        @NonNull
+        RefreshCoordinator getRefreshCoordinator();
+    }
+
+    private final SharedFrameClock mFrameClock;
+
+    private int mMaxConcurrentAutoRefreshes = Integer.MAX_VALUE;
+    private long mAutoRefreshStaggerMillis;
+
+    private final ArrayList<RefreshNestedLayout> mWaiting = new ArrayList<>();
+    private final ArrayList<RefreshNestedLayout> mRunning = new ArrayList<>();
+    private boolean mStaggerPending;
+
+    private final FrameClock.FrameCallback mStaggerCallback = new FrameClock.FrameCallback() {
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mStaggerPending = false;
+            startWaiting();
+        }
+    };
+
+    public RefreshCoordinator(@NonNull Context context) {
+        this(new ChoreographerFrameClock(context));
+    }
+
+    /**
+     * @param frameClock the clock the shared frame callback is posted on.
+     */
+    public RefreshCoordinator(@NonNull FrameClock frameClock) {
+        mFrameClock = new SharedFrameClock(frameClock);
+    }
+
+    @NonNull
+    public SharedFrameClock getFrameClock() {
+        return mFrameClock;
+    }
+
+    /**
+     * Let at most this many auto refreshes run at the same time, the others wait until one has settled.
+     */
+    public void setMaxConcurrentAutoRefreshes(int max) {
+        if (max < 1) {
+            throw new IllegalArgumentException("max must be at least 1, was " + max);
+        }
+        mMaxConcurrentAutoRefreshes = max;
+        startWaiting();
+    }
+
+    /**
+     * Start queued auto refreshes at least this far apart, so a screen of panels doesn't animate all at once.
+     */
+    public void setAutoRefreshStagger(long millis) {
+        mAutoRefreshStaggerMillis = millis;
+    }
+
+    void requestAutoRefresh(RefreshNestedLayout layout) {
+        if (mWaiting.contains(layout) || mRunning.contains(layout)) {
+            return;
+        }
+        mWaiting.add(layout);
+        startWaiting();
+    }
+
+    /**
+     * The layout's auto refresh has settled, was dropped or the layout left the window.
+     */
+    void onAutoRefreshDone(RefreshNestedLayout layout) {
+        mWaiting.remove(layout);
+        if (mRunning.remove(layout)) {
+            startWaiting();
+        }
+    }
+
+    private void startWaiting() {
+        while (!mStaggerPending && !mWaiting.isEmpty() && mRunning.size() < mMaxConcurrentAutoRefreshes) {
+            RefreshNestedLayout layout = mWaiting.remove(0);
+            mRunning.add(layout);
+            if (!layout.startAutoRefresh()) {
+                mRunning.remove(layout);
+                continue;
+            }
+            if (mAutoRefreshStaggerMillis > 0) {
+                mStaggerPending = true;
+                mFrameClock.postFrameCallbackDelayed(mStaggerCallback, mAutoRefreshStaggerMillis);
+            }
+        }
+    }
+
+    @Nullable
+    static RefreshCoordinator from(Context context) {
+        while (context instanceof ContextWrapper) {
+            if (context instanceof Owner) {
+                return ((Owner) context).getRefreshCoordinator();
+            }
+            context = ((ContextWrapper) context).getBaseContext();
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,128 @@
+package com.eastwood.common.view;
+
+import android.animation.TimeInterpolator;
+import android.support.annotation.NonNull;
+import android.support.v4.view.animation.FastOutLinearInInterpolator;
+import android.support.v4.view.animation.FastOutSlowInInterpolator;
+import android.support.v4.view.animation.LinearOutSlowInInterpolator;
+import android.view.animation.AccelerateDecelerateInterpolator;
+import android.view.animation.AccelerateInterpolator;
+import android.view.animation.AnticipateInterpolator;
+import android.view.animation.AnticipateOvershootInterpolator;
+import android.view.animation.BounceInterpolator;
+import android.view.animation.DecelerateInterpolator;
+import android.view.animation.LinearInterpolator;
+import android.view.animation.OvershootInterpolator;
+
+import com.eastwood.common.view.core.Curve;
+import com.eastwood.common.view.core.LookupTableCurve;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Bakes Android interpolators into {@link LookupTableCurve LookupTableCurves} for the settle animations of
+ * {@link RefreshNestedLayout}, see {@link RefreshNestedLayout#setSettleCurve(Curve)}.
+ */
+public final class RefreshCurves {
+
+    // The factor or tension of the parameterized framework interpolators is private, but their value at this
+    // input is a one-to-one function of it, so it stands in for the parameter in the key.
+    private static final float PARAMETER_PROBE = 0.25f;
+
+    // framework interpolators, keyed by class and parameter so equal interpolators share one table
+    private static final Map<FrameworkKey, LookupTableCurve> sFrameworkCache = new HashMap<>();
+    // any other interpolator, keyed by instance
+    private static final Map<TimeInterpolator, LookupTableCurve> sCache = new WeakHashMap<>();
+
+    private RefreshCurves() {
+    }
+
+    /**
+     * The baked form of {@code interpolator}, sampled on the first call and shared by every layout afterwards.
+     * Framework interpolators are shared by class and parameters, so
+     * {@code RefreshCurves.of(new DecelerateInterpolator())} from every layout returns the same table. Other
+     * interpolators are shared by instance.
+     */
+    @NonNull
+    public static LookupTableCurve of(@NonNull TimeInterpolator interpolator) {
+        final FrameworkKey key = frameworkKey(interpolator);
+        if (key != null) {
+            synchronized (sFrameworkCache) {
+                LookupTableCurve curve = sFrameworkCache.get(key);
+                if (curve == null) {
+                    curve = bake(interpolator);
+                    sFrameworkCache.put(key, curve);
+                }
+                return curve;
+            }
+        }
+        synchronized (sCache) {
+            LookupTableCurve curve = sCache.get(interpolator);
+            if (curve == null) {
+                curve = bake(interpolator);
+                sCache.put(interpolator, curve);
+            }
+            return curve;
+        }
+    }
+
+    private static FrameworkKey frameworkKey(TimeInterpolator interpolator) {
+        // exact classes only, a subclass may override the curve
+        final Class<?> type = interpolator.getClass();
+        if (type == LinearInterpolator.class
+                || type == AccelerateDecelerateInterpolator.class
+                || type == BounceInterpolator.class
+                || type == FastOutSlowInInterpolator.class
+                || type == FastOutLinearInInterpolator.class
+                || type == LinearOutSlowInInterpolator.class) {
+            return new FrameworkKey(type, 0f);
+        }
+        if (type == DecelerateInterpolator.class
+                || type == AccelerateInterpolator.class
+                || type == OvershootInterpolator.class
+                || type == AnticipateInterpolator.class
+                || type == AnticipateOvershootInterpolator.class) {
+            return new FrameworkKey(type, interpolator.getInterpolation(PARAMETER_PROBE));
+        }
+        return null;
+    }
+
+    private static LookupTableCurve bake(final TimeInterpolator interpolator) {
+        // the table doesn't keep the source, so the interpolator can still be collected
+        return new LookupTableCurve(new Curve() {
+
+            @Override
+            public float getInterpolation(float input) {
+                return interpolator.getInterpolation(input);
+            }
+        });
+    }
+
+    private static final class FrameworkKey {
+
+        private final Class<?> mType;
+        private final float mParameter;
+
+        FrameworkKey(Class<?> type, float parameter) {
+            mType = type;
+            mParameter = parameter;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof FrameworkKey)) {
+                return false;
+            }
+            FrameworkKey other = (FrameworkKey) o;
+            return mType == other.mType && Float.compare(mParameter, other.mParameter) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * mType.hashCode() + Float.floatToIntBits(mParameter);
+        }
+    }
+
+}
@@ -0,0 +1,12 @@
+package com.eastwood.common.view;
+
+public interface RefreshFooter {
+
+    void onLoadMoreBegin();
+
+    /**
+     * @param hasMore false if the last page was loaded, no further load more will be started until the next refresh.
+     */
+    void onLoadMoreFinish(boolean hasMore);
+
+}
@@ -0,0 +1,29 @@
+package com.eastwood.common.view;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.Gravity;
+import android.widget.FrameLayout;
+
+/**
+ * Footer pinned to the bottom of a {@link RefreshNestedLayout}, shown while the next page is loading.
+ */
+public abstract class RefreshFooterLayout extends FrameLayout implements RefreshFooter {
+
+    public RefreshFooterLayout(Context context) {
+        this(context, null);
+    }
+
+    public RefreshFooterLayout(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        init(context, attrs);
+    }
+
+    private void init(Context context, AttributeSet attrs) {
+        LayoutParams flp = new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT);
+        flp.gravity = Gravity.BOTTOM | Gravity.LEFT;
+        setLayoutParams(flp);
+        setVisibility(GONE);
+    }
+
+}
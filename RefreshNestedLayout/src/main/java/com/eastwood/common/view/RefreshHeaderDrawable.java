@@ -0,0 +1,69 @@
+package com.eastwood.common.view;
+
+import android.content.Context;
+import android.graphics.ColorFilter;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.text.TextUtils;
+
+/**
+ * Header drawn by {@link RefreshNestedLayout} straight onto its canvas, for simple headers like a spinner or an
+ * arrow that don't need a view hierarchy. Pulling only changes the bounds and redraws, there is no child view,
+ * no measure and no layout pass.
+ * <p>
+ * The bounds always cover the visible part of the header at the top of the layout, {@link #setHeight(int)} is
+ * their height. Call {@link #invalidateSelf()} to redraw, e.g. while refreshing.
+ */
+public abstract class RefreshHeaderDrawable extends Drawable implements RefreshHeader {
+
+    private static final HeaderConstructorCache<RefreshHeaderDrawable> sConstructors =
+            new HeaderConstructorCache<>(RefreshHeaderDrawable.class, Context.class);
+
+    private final Rect mTmpBounds = new Rect();
+
+    @Override
+    public void setHeight(int height) {
+        Rect bounds = getBounds();
+        if (bounds.height() != height) {
+            setBounds(bounds.left, bounds.top, bounds.right, bounds.top + height);
+        }
+    }
+
+    @Override
+    public void setMargins(int left, int top, int right, int bottom) {
+        // placed by the layout, margins don't apply
+    }
+
+    void setHeaderBounds(int left, int top, int right, int height) {
+        mTmpBounds.set(left, top, right, top + height);
+        if (!mTmpBounds.equals(getBounds())) {
+            setBounds(mTmpBounds);
+        }
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+    }
+
+    @Override
+    public void setColorFilter(ColorFilter colorFilter) {
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+
+    static RefreshHeaderDrawable parseRefreshHeaderDrawable(Context context, String name) {
+        if (TextUtils.isEmpty(name)) {
+            return null;
+        }
+        try {
+            return sConstructors.get(context, name).newInstance(context);
+        } catch (Exception e) {
+            throw new RuntimeException("Could not create RefreshHeaderDrawable subclass " + name, e);
+        }
+    }
+
+}
@@ -0,0 +1,16 @@
+package com.eastwood.common.view;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.AttributeSet;
+
+/**
+ * Creates the header named by {@code refresh_header}, see {@link RefreshHeaderLayout#registerFactory(String, RefreshHeaderFactory)}.
+ */
+public interface RefreshHeaderFactory {
+
+    @NonNull
+    RefreshHeaderLayout create(@NonNull Context context, @Nullable AttributeSet attrs);
+
+}
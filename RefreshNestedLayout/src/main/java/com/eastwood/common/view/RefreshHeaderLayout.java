@@ -1,13 +1,13 @@
 package com.eastwood.common.view;
 
 import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.v4.util.SimpleArrayMap;
 import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.view.Gravity;
 import android.widget.FrameLayout;
 
-import java.lang.reflect.Constructor;
-
 public abstract class RefreshHeaderLayout extends FrameLayout implements RefreshHeader {
 
     public RefreshHeaderLayout(Context context) {
@@ -39,21 +39,44 @@ public abstract class RefreshHeaderLayout extends FrameLayout implements Refresh
         requestLayout();
     }
 
-    static final Class<?>[] CONSTRUCTOR_PARAMS = new Class<?>[]{
-            Context.class,
-            AttributeSet.class
-    };
+    private static final SimpleArrayMap<String, RefreshHeaderFactory> sFactories = new SimpleArrayMap<>();
+
+    // reflection fallback, resolved once per name like LayoutInflater does for views
+    private static final HeaderConstructorCache<RefreshHeaderLayout> sConstructors =
+            new HeaderConstructorCache<>(RefreshHeaderLayout.class, Context.class, AttributeSet.class);
+
+    /**
+     * Create the header for a {@code refresh_header} value with the given factory instead of looking the name
+     * up as a class, which avoids reflection on every inflation and keeps working after obfuscation.
+     * The name doesn't have to be a class name.
+     */
+    public static void registerFactory(@NonNull String name, @NonNull RefreshHeaderFactory factory) {
+        synchronized (sFactories) {
+            sFactories.put(name, factory);
+        }
+    }
+
+    public static void unregisterFactory(@NonNull String name) {
+        synchronized (sFactories) {
+            sFactories.remove(name);
+        }
+    }
 
     static RefreshHeaderLayout parseRefreshHeader(Context context, AttributeSet attrs, String name) {
         if (TextUtils.isEmpty(name)) {
             return null;
         }
 
+        RefreshHeaderFactory factory;
+        synchronized (sFactories) {
+            factory = sFactories.get(name);
+        }
+        if (factory != null) {
+            return factory.create(context, attrs);
+        }
+
         try {
-            final Class<RefreshHeaderLayout> clazz = (Class<RefreshHeaderLayout>) Class.forName(name, true, context.getClassLoader());
-            Constructor<RefreshHeaderLayout> c = clazz.getConstructor(CONSTRUCTOR_PARAMS);
-            c.setAccessible(true);
-            return c.newInstance(context, attrs);
+            return sConstructors.get(context, name).newInstance(context, attrs);
         } catch (Exception e) {
             throw new RuntimeException("Could not inflate RefreshHeaderLayout subclass " + name, e);
         }
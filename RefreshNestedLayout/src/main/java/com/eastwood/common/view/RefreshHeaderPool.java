@@ -0,0 +1,83 @@
+package com.eastwood.common.view;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.util.SimpleArrayMap;
+
+import java.util.ArrayList;
+
+/**
+ * Idle headers shared between {@link RefreshNestedLayout RefreshNestedLayouts}, keyed by their {@code refresh_header}
+ * name. A layout using a pool only holds a header while it is pulled or refreshing and hands it back once it
+ * settles, so screens with many layouts, e.g. the pages of a ViewPager, build a few headers instead of one each.
+ * <p>
+ * Headers keep the context they were created with, share a pool only between layouts of the same Activity.
+ * Layouts inflated with a context that implements {@link Owner} use its pool, others can be given one with
+ * {@link RefreshNestedLayout#setHeaderPool(RefreshHeaderPool)}. Pooled headers are created without the layout's
+ * attributes. Not thread safe, use it on the UI thread.
+ */
+public final class RefreshHeaderPool {
+
+    private static final int DEFAULT_MAX_IDLE_PER_NAME = 2;
+
+    public interface Owner {
+
+        @NonNull
+        RefreshHeaderPool getRefreshHeaderPool();
+    }
+
+    private final int mMaxIdlePerName;
+    private final SimpleArrayMap<String, ArrayList<RefreshHeaderLayout>> mIdleHeaders = new SimpleArrayMap<>();
+
+    public RefreshHeaderPool() {
+        this(DEFAULT_MAX_IDLE_PER_NAME);
+    }
+
+    /**
+     * @param maxIdlePerName how many idle headers of each name are kept, extra ones are dropped on release.
+     */
+    public RefreshHeaderPool(int maxIdlePerName) {
+        mMaxIdlePerName = maxIdlePerName;
+    }
+
+    @NonNull
+    RefreshHeaderLayout acquire(@NonNull Context context, @NonNull String name) {
+        ArrayList<RefreshHeaderLayout> headers = mIdleHeaders.get(name);
+        if (headers != null && !headers.isEmpty()) {
+            return headers.remove(headers.size() - 1);
+        }
+        return RefreshHeaderLayout.parseRefreshHeader(context, null, name);
+    }
+
+    void release(@NonNull String name, @NonNull RefreshHeaderLayout header) {
+        ArrayList<RefreshHeaderLayout> headers = mIdleHeaders.get(name);
+        if (headers == null) {
+            headers = new ArrayList<>(mMaxIdlePerName);
+            mIdleHeaders.put(name, headers);
+        }
+        if (headers.size() < mMaxIdlePerName) {
+            headers.add(header);
+        }
+    }
+
+    /**
+     * Drop every idle header, e.g. when the owning Activity is destroyed.
+     */
+    public void clear() {
+        mIdleHeaders.clear();
+    }
+
+    @Nullable
+    static RefreshHeaderPool from(Context context) {
+        while (context instanceof ContextWrapper) {
+            if (context instanceof Owner) {
+                return ((Owner) context).getRefreshHeaderPool();
+            }
+            context = ((ContextWrapper) context).getBaseContext();
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.eastwood.common.view;
+
+import android.support.annotation.NonNull;
+
+import com.eastwood.common.view.core.LatencyHistogram;
+
+/**
+ * How long users waited on the refreshes of one or more {@link RefreshNestedLayout RefreshNestedLayouts}, in
+ * milliseconds, see {@link RefreshNestedLayout#setRefreshLatencies(RefreshLatencies)}. Share one instance between
+ * the layouts of a screen to get percentiles per screen. Use it on the UI thread, upload a {@link #snapshot()}.
+ */
+public final class RefreshLatencies {
+
+    private final LatencyHistogram mPullToBegin;
+    private final LatencyHistogram mBeginToComplete;
+    private final LatencyHistogram mCompleteToIdle;
+
+    public RefreshLatencies() {
+        this(new LatencyHistogram(), new LatencyHistogram(), new LatencyHistogram());
+    }
+
+    private RefreshLatencies(LatencyHistogram pullToBegin, LatencyHistogram beginToComplete, LatencyHistogram completeToIdle) {
+        mPullToBegin = pullToBegin;
+        mBeginToComplete = beginToComplete;
+        mCompleteToIdle = completeToIdle;
+    }
+
+    /**
+     * From the start of a drag until the header begins refreshing, auto refreshes are not counted.
+     */
+    @NonNull
+    public LatencyHistogram getPullToBegin() {
+        return mPullToBegin;
+    }
+
+    /**
+     * From the refresh listener being called until {@link RefreshNestedLayout#onRefreshComplete()}, or the
+     * {@link RefreshRequest} completing. Cancelled and timed out refreshes are not counted.
+     */
+    @NonNull
+    public LatencyHistogram getBeginToComplete() {
+        return mBeginToComplete;
+    }
+
+    /**
+     * From the completion of a refresh until the header is hidden again.
+     */
+    @NonNull
+    public LatencyHistogram getCompleteToIdle() {
+        return mCompleteToIdle;
+    }
+
+    @NonNull
+    public RefreshLatencies snapshot() {
+        return new RefreshLatencies(mPullToBegin.snapshot(), mBeginToComplete.snapshot(), mCompleteToIdle.snapshot());
+    }
+
+    public void reset() {
+        mPullToBegin.reset();
+        mBeginToComplete.reset();
+        mCompleteToIdle.reset();
+    }
+
+}
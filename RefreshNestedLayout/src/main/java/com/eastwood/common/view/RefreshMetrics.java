@@ -0,0 +1,93 @@
+package com.eastwood.common.view;
+
+/**
+ * What one drag or one settle animation of a {@link RefreshNestedLayout} cost.
+ * <p>
+ * The same instance is reused for every report, copy the values if they are needed after
+ * {@link RefreshNestedLayout.OnRefreshMetricsListener#onRefreshMetrics(RefreshMetrics)} returns.
+ */
+public final class RefreshMetrics {
+
+    public static final int TYPE_DRAG = 0;
+    public static final int TYPE_ANIMATION = 1;
+
+    int mType;
+    long mDurationNanos;
+    int mFrames;
+    int mFramesOverBudget;
+    long mBodyScrollNanos;
+    int mLayoutCount;
+    long mHeaderCallbackNanos;
+
+    void reset(int type) {
+        mType = type;
+        mDurationNanos = 0;
+        mFrames = 0;
+        mFramesOverBudget = 0;
+        mBodyScrollNanos = 0;
+        mLayoutCount = 0;
+        mHeaderCallbackNanos = 0;
+    }
+
+    /**
+     * @return {@link #TYPE_DRAG} or {@link #TYPE_ANIMATION}.
+     */
+    public int getType() {
+        return mType;
+    }
+
+    public long getDurationNanos() {
+        return mDurationNanos;
+    }
+
+    /**
+     * @return the number of frames the display produced during the drag or animation.
+     */
+    public int getFrames() {
+        return mFrames;
+    }
+
+    /**
+     * @return the number of frames that came more than one and a half frame intervals after the previous one, each
+     * follows at least one dropped frame.
+     */
+    public int getFramesOverBudget() {
+        return mFramesOverBudget;
+    }
+
+    /**
+     * @return the time spent applying the header offset to the views.
+     */
+    public long getBodyScrollNanos() {
+        return mBodyScrollNanos;
+    }
+
+    /**
+     * @return the number of layout passes the layout went through during the drag or animation, whatever requested
+     * them.
+     */
+    public int getLayoutCount() {
+        return mLayoutCount;
+    }
+
+    /**
+     * @return the time spent in {@link RefreshHeader} callbacks.
+     */
+    public long getHeaderCallbackNanos() {
+        return mHeaderCallbackNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "RefreshMetrics{" +
+                "type=" + (mType == TYPE_DRAG ? "drag" : "animation") +
+                ", durationNanos=" + mDurationNanos +
+                ", frames=" + mFrames +
+                ", framesOverBudget=" + mFramesOverBudget +
+                ", bodyScrollNanos=" + mBodyScrollNanos +
+                ", layoutCount=" + mLayoutCount +
+                ", headerCallbackNanos=" + mHeaderCallbackNanos +
+                '}';
+    }
+
+}
@@ -2,74 +2,168 @@ package com.eastwood.common.view;
 
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import android.support.v4.view.NestedScrollingChild;
+import android.support.v4.view.NestedScrollingChild2;
 import android.support.v4.view.NestedScrollingChildHelper;
-import android.support.v4.view.NestedScrollingParent;
+import android.support.v4.view.NestedScrollingParent2;
 import android.support.v4.view.NestedScrollingParentHelper;
 import android.support.v4.view.ViewCompat;
-import android.support.v4.widget.ListViewCompat;
 import android.util.AttributeSet;
-import android.util.Log;
 import android.view.Gravity;
 import android.view.MotionEvent;
+import android.view.VelocityTracker;
 import android.view.View;
 import android.view.ViewConfiguration;
-import android.view.animation.DecelerateInterpolator;
-import android.view.animation.Interpolator;
+import android.view.ViewTreeObserver;
 import android.widget.AbsListView;
 import android.widget.FrameLayout;
-import android.widget.ListView;
 
-public class RefreshNestedLayout extends FrameLayout implements NestedScrollingParent, NestedScrollingChild {
+import com.eastwood.common.view.core.Curve;
+import com.eastwood.common.view.core.FrameClock;
+import com.eastwood.common.view.core.RefreshEngine;
+import com.eastwood.common.view.core.RefreshState;
+import com.eastwood.common.view.core.SharedFrameClock;
+import com.eastwood.common.view.core.TouchTrace;
+import com.eastwood.common.view.core.Tracer;
 
-    private String LOG_TAG = this.getClass().getSimpleName();
+import java.util.concurrent.Executor;
+
+public class RefreshNestedLayout extends FrameLayout implements NestedScrollingParent2, NestedScrollingChild2 {
 
     private Context mContext;
     private AttributeSet mAttributeSet;
 
-    public static final int SMOOTH_SCROLL_DURATION_MS = 250;
+    public static final int SMOOTH_SCROLL_DURATION_MS = RefreshEngine.SMOOTH_SCROLL_DURATION_MS;
+
+    /**
+     * The header is resized (and the body scrolled) through {@link RefreshHeader#setHeight(int)}
+     * and {@link RefreshHeader#setMargins(int, int, int, int)}, which requests a layout pass on every offset change.
+     */
+    public static final int HEADER_OFFSET_MODE_RESIZE = 0;
+
+    /**
+     * The header is measured once at {@code maxPullDistance} and only moved by translation and scrolling,
+     * so pulling and settling never request a layout pass.
+     */
+    public static final int HEADER_OFFSET_MODE_TRANSLATE = 1;
+
+    // deceleration applied to fling momentum carried into the header, in dp/s^2
+    private static final float FLING_OVERSCROLL_DECELERATION = 20000f;
 
-    private static final int INVALID_POINTER = -1;
-    private static float DRAG_RATE = .6125f;
+    private static final String TRACE_BODY_SCROLL = "RNL setBodyScroll";
+    private static final String TRACE_REFRESH = "RNL refresh";
 
-    protected boolean mRefreshing;
+    private static int sRefreshTraceCookie;
 
-    protected State mCurrentState = State.NONE;
+    private static final int DEFAULT_LOAD_MORE_THRESHOLD_ITEMS = 3;
 
     private int mPullMaxDistance;
-    private int mRefreshingDistance;
 
-    // If nested scrolling is enabled, the total amount that needed to be
-    // consumed by this as the nested scrolling parent is used in place of the
-    // overScroll determined by MOVE events in the onTouch handler
-    private float mTotalUnconsumed;
+    private int mHeaderOffsetMode;
+
+    // the gesture and state machine, this view only feeds it input and applies its output
+    private final RefreshEngine mEngine;
+    private final MotionEventAdapter mTouchEvent = new MotionEventAdapter();
+    private VelocityTracker mVelocityTracker;
+    private int mMaxFlingVelocity;
+
     private final NestedScrollingParentHelper mNestedScrollingParentHelper;
     private final NestedScrollingChildHelper mNestedScrollingChildHelper;
     private final int[] mParentScrollConsumed = new int[2];
     private final int[] mParentOffsetInWindow = new int[2];
-    private boolean mNestedScrollInProgress;
-
-    private boolean mIsBeingDragged;
-    private int mActivePointerId = INVALID_POINTER;
 
     private boolean mScrollWhenRefreshingEnabled;
 
-    private int mTouchSlop;
-    private float mInitialMotionY;
-    private float mInitialDownY;
+    private boolean mHardwareLayersDuringMotion;
+    // views promoted for the current drag or settle, with the layer types to put back
+    private View mLayerHeader;
+    private View mLayerBody;
+    private int mSavedHeaderLayerType;
+    private int mSavedBodyLayerType;
 
     private View mRefreshableView;
     private RefreshHeaderLayout mHeaderLayout;
-
-    private SmoothScrollRunnable mCurrentSmoothScrollRunnable;
-    private Interpolator mScrollAnimationInterpolator;
+    // drawn in dispatchDraw instead of mHeaderLayout when set
+    private RefreshHeaderDrawable mHeaderDrawable;
+    private String mHeaderName;
+    // when set, mHeaderLayout is only held from the start of a pull or refresh until the layout settles
+    private RefreshHeaderPool mHeaderPool;
+    private final HeaderDispatcher mHeaderDispatcher;
 
     private OnRefreshListener mOnRefreshListener;
+    private OnAsyncRefreshListener mOnAsyncRefreshListener;
+    private Executor mRefreshExecutor;
+    private RefreshRequest mRefreshRequest;
+
+    private boolean mRefreshPrefetchEnabled;
+    // started while the pull is past the threshold, adopted on release above it and cancelled otherwise
+    private RefreshRequest mSpeculativeRequest;
+    private boolean mSpeculativeRequestCompleted;
+
+    private RefreshPolicy mRefreshPolicy;
+
+    private RefreshCoordinator mRefreshCoordinator;
+    // holds one of the coordinator's auto refresh slots until the header is back at rest
+    private boolean mAutoRefreshRunning;
+    private boolean mSoftRefresh;
+    private boolean mAutoRefreshPending;
+
+    private OnLoadMoreListener mOnLoadMoreListener;
+    private RefreshFooterLayout mFooterLayout;
+    private int mLoadMoreThresholdItems = DEFAULT_LOAD_MORE_THRESHOLD_ITEMS;
+    private int mLoadMoreThresholdPixels;
+    private boolean mLoadingMore;
+    private boolean mHasMore = true;
+    private boolean mLoadMoreCheckPending;
 
     private OnChildScrollUpCallback mChildScrollUpCallback;
 
+    private OnStateChangeListener mOnStateChangeListener;
+
+    // resolved once per refreshable view, the gesture paths cache the answer until the next event or scroll
+    private ChildScrollStrategy mChildScrollStrategy;
+    private View mChildScrollStrategyTarget;
+    private boolean mCanChildScrollUp;
+    private boolean mCanChildScrollUpValid;
+    // where the refreshable view was scrolled to when the window last reported a scroll
+    private long mChildScrollPosition;
+    // the child whose fling was handed to the header, until its scroller is stopped
+    private View mFlingTarget;
+    private final ViewTreeObserver.OnScrollChangedListener mOnScrollChangedListener = new ViewTreeObserver.OnScrollChangedListener() {
+
+        @Override
+        public void onScrollChanged() {
+            mCanChildScrollUpValid = false;
+            if (mOnLoadMoreListener == null || mRefreshableView == null) {
+                return;
+            }
+            // reported for a scroll anywhere in the window, only the refreshable view's own can bring its end closer
+            final long position = ChildScrollExtent.scrollPosition(mRefreshableView);
+            if (position != mChildScrollPosition) {
+                mChildScrollPosition = position;
+                scheduleLoadMoreCheck();
+            }
+        }
+    };
+
+    // null unless a metrics listener is set, so the instrumentation costs nothing by default
+    private MetricsRecorder mMetricsRecorder;
+
+    private TouchTrace mTouchTrace;
+
+    private RefreshLatencies mRefreshLatencies;
+    // uptime of the current phase's start, -1 when the phase isn't being measured
+    private long mPullStartMillis = -1;
+    private long mRefreshStartMillis = -1;
+    private long mRefreshCompleteMillis = -1;
+
+    // cookie of the async trace section of the pull or refresh in progress, 0 when none is open
+    private int mRefreshTraceCookie;
+
     public RefreshNestedLayout(Context context) {
         this(context, null);
     }
@@ -79,8 +173,14 @@ public class RefreshNestedLayout extends FrameLayout implements NestedScrollingP
 
         mContext = context;
 
+        mRefreshCoordinator = RefreshCoordinator.from(context);
+        mEngine = new RefreshEngine(new EngineCallback(), mRefreshCoordinator != null
+                ? mRefreshCoordinator.getFrameClock() : new ChoreographerFrameClock(this));
+
         ViewConfiguration config = ViewConfiguration.get(context);
-        mTouchSlop = config.getScaledTouchSlop();
+        mEngine.setTouchSlop(config.getScaledTouchSlop());
+        mEngine.setMinFlingVelocity(config.getScaledMinimumFlingVelocity());
+        mMaxFlingVelocity = config.getScaledMaximumFlingVelocity();
 
         mAttributeSet = attrs;
 
@@ -88,19 +188,39 @@ public class RefreshNestedLayout extends FrameLayout implements NestedScrollingP
         TypedArray a = mContext.obtainStyledAttributes(mAttributeSet, R.styleable.RefreshNestedLayout);
 
         mPullMaxDistance = a.getDimensionPixelSize(R.styleable.RefreshNestedLayout_maxPullDistance, getResources().getDimensionPixelOffset(R.dimen.default_pull_max_distance));
-        mRefreshingDistance = a.getDimensionPixelSize(R.styleable.RefreshNestedLayout_refreshingDistance, getResources().getDimensionPixelOffset(R.dimen.default_refreshing_distance));
+        mEngine.setPullMaxDistance(mPullMaxDistance);
+        mEngine.setRefreshingDistance(a.getDimensionPixelSize(R.styleable.RefreshNestedLayout_refreshingDistance, getResources().getDimensionPixelOffset(R.dimen.default_refreshing_distance)));
 
         mScrollWhenRefreshingEnabled = a.getBoolean(R.styleable.RefreshNestedLayout_scrollWhenRefreshingEnabled, true);
 
+        mHeaderOffsetMode = a.getInt(R.styleable.RefreshNestedLayout_headerOffsetMode, HEADER_OFFSET_MODE_RESIZE);
+
+        mHardwareLayersDuringMotion = a.getBoolean(R.styleable.RefreshNestedLayout_hardwareLayersDuringMotion, false);
+
+        boolean refreshHeaderDrawable = a.hasValue(R.styleable.RefreshNestedLayout_refresh_header_drawable);
         boolean refreshHeader = a.hasValue(R.styleable.RefreshNestedLayout_refresh_header);
-        if (refreshHeader) {
-            mHeaderLayout = RefreshHeaderLayout.parseRefreshHeader(context, attrs, a.getString(R.styleable.RefreshNestedLayout_refresh_header));
+        if (refreshHeaderDrawable) {
+            mHeaderName = a.getString(R.styleable.RefreshNestedLayout_refresh_header);
+            setHeaderDrawable(RefreshHeaderDrawable.parseRefreshHeaderDrawable(context,
+                    a.getString(R.styleable.RefreshNestedLayout_refresh_header_drawable)));
+        } else if (refreshHeader) {
+            mHeaderName = a.getString(R.styleable.RefreshNestedLayout_refresh_header);
+            mHeaderPool = RefreshHeaderPool.from(context);
+            if (mHeaderPool == null) {
+                mHeaderLayout = RefreshHeaderLayout.parseRefreshHeader(context, attrs, mHeaderName);
+            }
         } else {
             throw new RuntimeException("refresh_header Attribute not specified.");
         }
 
         a.recycle();
 
+        mHeaderDispatcher = new HeaderDispatcher(this, mEngine.getFrameClock());
+        mHeaderDispatcher.setHeader(getHeader());
+
+        mEngine.setScrollDuration(getPullToRefreshScrollDuration());
+        mEngine.setFlingOverscrollDeceleration(FLING_OVERSCROLL_DECELERATION * getResources().getDisplayMetrics().density);
+
         mNestedScrollingParentHelper = new NestedScrollingParentHelper(this);
         mNestedScrollingChildHelper = new NestedScrollingChildHelper(this);
         setNestedScrollingEnabled(true);
@@ -119,9 +239,145 @@ public class RefreshNestedLayout extends FrameLayout implements NestedScrollingP
             ViewCompat.setNestedScrollingEnabled(mRefreshableView, true);
         }
 
-        mHeaderLayout.setHeight(0);  // hidden
+        if (mHeaderLayout != null) {
+            applyHeaderOffsetMode();  // hidden
+            addView(mHeaderLayout, -1);
+        }
+
+    }
+
+    /**
+     * Share idle headers with other layouts through the given pool, or keep a header of its own when null.
+     * <p>
+     * A pooled header is attached when a gesture that may turn into a pull goes down, and handed back once the
+     * layout is idle again. Attaching and handing back each cost one layout pass, so the pool costs up to two
+     * layout passes per such gesture, both outside of the pull frames. Pooled headers are built without the
+     * layout's XML attributes, a header that reads its own attributes gets their defaults.
+     */
+    public void setHeaderPool(@Nullable RefreshHeaderPool pool) {
+        if (mHeaderPool == pool) {
+            return;
+        }
+        mHeaderPool = pool;
+        if (pool == null) {
+            mEngine.getFrameClock().removeFrameCallback(mReleaseHeaderCallback);
+            attachHeader();
+        } else {
+            releaseHeaderIfIdle();
+        }
+    }
+
+    private void attachHeader() {
+        if (mHeaderLayout != null || mHeaderDrawable != null || mHeaderName == null) {
+            return;
+        }
+        mHeaderLayout = mHeaderPool != null
+                ? mHeaderPool.acquire(getContext(), mHeaderName)
+                : RefreshHeaderLayout.parseRefreshHeader(getContext(), null, mHeaderName);
+        mHeaderDispatcher.setHeader(mHeaderLayout);
+        applyHeaderOffsetMode();
         addView(mHeaderLayout, -1);
+    }
+
+    // a gesture that may turn into a pull gets its pooled header at the down, so the inflate and the layout pass
+    // of attaching it run before the touch slop is crossed rather than in the first pull frame
+    private void attachHeaderForGesture() {
+        if (mHeaderPool == null || mHeaderLayout != null || !isEnabled() || canChildScrollUpCached()) {
+            return;
+        }
+        mEngine.getFrameClock().removeFrameCallback(mReleaseHeaderCallback);
+        attachHeader();
+    }
+
+    private void releaseHeaderIfIdle() {
+        if (mHeaderLayout == null || mHeaderPool == null
+                || mEngine.getState() != RefreshState.NONE || mEngine.getHeaderOffset() != 0) {
+            return;
+        }
+        RefreshHeaderLayout header = mHeaderLayout;
+        mHeaderLayout = null;
+        mHeaderDispatcher.setHeader(null);
+        removeView(header);
+        mHeaderPool.release(mHeaderName, header);
+    }
+
+    // handed back a frame after settling, so a gesture that starts right away keeps the attached header
+    private final FrameClock.FrameCallback mReleaseHeaderCallback = new FrameClock.FrameCallback() {
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            releaseHeaderIfIdle();
+        }
+    };
+
+    /**
+     * Draw the given header onto the layout instead of adding a header view, or go back to the
+     * {@code refresh_header} view when null. Same as {@code app:refresh_header_drawable} with the class name of a
+     * {@link RefreshHeaderDrawable} that has a {@code (Context)} constructor.
+     */
+    public void setRefreshHeaderDrawable(@Nullable RefreshHeaderDrawable drawable) {
+        if (mHeaderDrawable == drawable) {
+            return;
+        }
+        restoreLayers();
+        if (mHeaderLayout != null) {
+            RefreshHeaderLayout header = mHeaderLayout;
+            mHeaderLayout = null;
+            removeView(header);
+            scrollTo(0, 0);
+            if (mHeaderPool != null) {
+                mHeaderPool.release(mHeaderName, header);
+            }
+        }
+        setHeaderDrawable(drawable);
+        mHeaderDispatcher.setHeader(drawable);
+        if (drawable == null && (mHeaderPool == null || mEngine.getState() != RefreshState.NONE)) {
+            attachHeader();
+        } else {
+            setBodyScroll(-mEngine.getHeaderOffset());
+        }
+    }
+
+    private void setHeaderDrawable(RefreshHeaderDrawable drawable) {
+        if (mHeaderDrawable != null) {
+            mHeaderDrawable.setCallback(null);
+            scrollTo(0, 0);
+            invalidate();
+        }
+        mHeaderDrawable = drawable;
+        if (drawable != null) {
+            drawable.setCallback(this);
+        }
+    }
+
+    @Nullable
+    public RefreshHeaderDrawable getRefreshHeaderDrawable() {
+        return mHeaderDrawable;
+    }
+
+    private RefreshHeader getHeader() {
+        return mHeaderDrawable != null ? mHeaderDrawable : mHeaderLayout;
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        super.dispatchDraw(canvas);
+        if (mHeaderDrawable != null && mEngine.getHeaderOffset() != 0) {
+            mHeaderDrawable.draw(canvas);
+        }
+    }
+
+    @Override
+    protected boolean verifyDrawable(@NonNull Drawable who) {
+        return who == mHeaderDrawable || super.verifyDrawable(who);
+    }
 
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        if (mHeaderDrawable != null) {
+            setBodyScroll(-mEngine.getHeaderOffset());
+        }
     }
 
     private void ensureTarget() {
@@ -130,7 +386,7 @@ public class RefreshNestedLayout extends FrameLayout implements NestedScrollingP
         if (mRefreshableView == null) {
             for (int i = 0; i < getChildCount(); i++) {
                 View child = getChildAt(i);
-                if (!child.equals(mHeaderLayout)) {
+                if (!child.equals(mHeaderLayout) && !child.equals(mFooterLayout)) {
                     mRefreshableView = child;
                     break;
                 }
@@ -139,100 +395,93 @@ public class RefreshNestedLayout extends FrameLayout implements NestedScrollingP
     }
 
     @Override
-    public boolean onInterceptTouchEvent(MotionEvent event) {
-        ensureTarget();
-        if (mNestedScrollInProgress) {
-            return false;
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        getViewTreeObserver().addOnScrollChangedListener(mOnScrollChangedListener);
+        if (mHeaderDrawable != null) {
+            mHeaderDrawable.setVisible(true, false);
         }
+    }
 
-        if (mCurrentState == State.SCROLL_TO_BACK || mCurrentState == State.SCROLL_TO_REFRESH) {
-            return true;
+    @Override
+    protected void onDetachedFromWindow() {
+        getViewTreeObserver().removeOnScrollChangedListener(mOnScrollChangedListener);
+        if (mHeaderDrawable != null) {
+            // lets animated headers stop their animation
+            mHeaderDrawable.setVisible(false, false);
         }
+        mEngine.getFrameClock().removeFrameCallback(mReleaseHeaderCallback);
+        mEngine.getFrameClock().removeFrameCallback(mLoadMoreCheckCallback);
+        mLoadMoreCheckPending = false;
+        mEngine.getFrameClock().removeFrameCallback(mAutoRefreshCallback);
+        mAutoRefreshPending = false;
+        mEngine.getFrameClock().removeFrameCallback(mStopChildFlingCallback);
+        mFlingTarget = null;
+        if (mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+        if (mRefreshCoordinator != null) {
+            mRefreshCoordinator.onAutoRefreshDone(this);
+            mAutoRefreshRunning = false;
+        }
+        if (mMetricsRecorder != null) {
+            // stops its frame callbacks, a detached layout draws no frames
+            mMetricsRecorder.end();
+        }
+        releaseHeaderIfIdle();
+        super.onDetachedFromWindow();
+    }
 
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent event) {
+        mCanChildScrollUpValid = false;
+        trackVelocity(event);
         final int action = event.getActionMasked();
-        int pointerIndex;
-
-        if (mCurrentState == State.REFRESHING) {
-
-        } else if (!isEnabled() || canChildScrollUp() || mNestedScrollInProgress) {
-            // Fail fast if we're not in a state where a swipe is possible
-            return false;
-        } else {
-
+        if (action == MotionEvent.ACTION_DOWN) {
+            attachHeaderForGesture();
         }
-
-        switch (action) {
-            case MotionEvent.ACTION_DOWN: {
-                mActivePointerId = event.getPointerId(0);
-                mIsBeingDragged = false;
-                pointerIndex = event.findPointerIndex(mActivePointerId);
-                if (pointerIndex < 0) {
-                    return false;
-                }
-                mInitialDownY = event.getY(pointerIndex);
-
-                if (mCurrentState == State.REFRESHING) {
-                    mInitialDownY -= mRefreshingDistance / DRAG_RATE;
-                }
-                break;
-            }
-            case MotionEvent.ACTION_MOVE: {
-                if (mActivePointerId == INVALID_POINTER) {
-                    Log.e(LOG_TAG, "onInterceptTouchEvent, Got ACTION_MOVE event but don't have an active pointer id.");
-                    return false;
-                }
-                pointerIndex = event.findPointerIndex(mActivePointerId);
-                if (pointerIndex < 0) {
-                    return false;
-                }
-                float y = event.getY(pointerIndex);
-                if (mCurrentState == State.REFRESHING) {
-                    float yDiff = y - (mInitialDownY + mRefreshingDistance / DRAG_RATE);
-                    if (Math.abs(yDiff) > mTouchSlop && !mIsBeingDragged) {
-                        if (yDiff > 0) {
-                            mInitialMotionY = mInitialDownY + mTouchSlop;
-                        } else {
-                            mInitialMotionY = mInitialDownY - mTouchSlop;
-                        }
-                        mIsBeingDragged = true;
-                    }
-                } else {
-                    float yDiff = y - mInitialDownY;
-                    startDragging(yDiff);
-                }
-                break;
+        boolean handled = super.dispatchTouchEvent(event);
+        if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+            if (mVelocityTracker != null) {
+                mVelocityTracker.recycle();
+                mVelocityTracker = null;
             }
-            case MotionEvent.ACTION_POINTER_UP: {
-                onSecondaryPointerUp(event);
-                break;
-            }
-            case MotionEvent.ACTION_UP:
-            case MotionEvent.ACTION_CANCEL: {
-                mIsBeingDragged = false;
-                mActivePointerId = INVALID_POINTER;
-                if (mCurrentState != State.REFRESHING && mHeaderLayout.getHeight() != 0) {
-                    // TODO scrollBody directly ?
-                    onReset();
-                }
-                break;
+            if (mHeaderPool != null && mHeaderLayout != null) {
+                // no pull followed, or it settles and is released once idle
+                mEngine.getFrameClock().postFrameCallback(mReleaseHeaderCallback);
             }
         }
-        return mIsBeingDragged;
+        return handled;
     }
 
-    private void onSecondaryPointerUp(MotionEvent ev) {
-        final int pointerIndex = ev.getActionIndex();
-        final int pointerId = ev.getPointerId(pointerIndex);
-        if (pointerId == mActivePointerId) {
-            // This was our active pointer going up. Choose a new
-            // active pointer and adjust accordingly.
-            final int newPointerIndex = pointerIndex == 0 ? 1 : 0;
-            mActivePointerId = ev.getPointerId(newPointerIndex);
+    // seen before the engine or a nested scrolling child handles the event, so a release already knows its velocity
+    private void trackVelocity(MotionEvent event) {
+        final int action = event.getActionMasked();
+        if (action == MotionEvent.ACTION_DOWN) {
+            if (mVelocityTracker == null) {
+                mVelocityTracker = VelocityTracker.obtain();
+            } else {
+                mVelocityTracker.clear();
+            }
+        }
+        if (mVelocityTracker == null) {
+            return;
+        }
+        mVelocityTracker.addMovement(event);
+        if (action == MotionEvent.ACTION_UP) {
+            mVelocityTracker.computeCurrentVelocity(1000, mMaxFlingVelocity);
+            mEngine.setReleaseVelocity(mVelocityTracker.getYVelocity(event.getPointerId(event.getActionIndex())));
+        }
+    }
 
-            float activePointerY = ev.getY(newPointerIndex);
-            mInitialDownY = activePointerY - mHeaderLayout.getHeight() / DRAG_RATE - mTouchSlop;
-            mIsBeingDragged = false;
+    @Override
+    public boolean onInterceptTouchEvent(MotionEvent event) {
+        ensureTarget();
+        if (mTouchTrace != null) {
+            recordTouchEvent(TouchTrace.ROUTE_INTERCEPT, event);
         }
+        return mEngine.onInterceptTouchEvent(mTouchEvent.set(event));
     }
 
     @Override
@@ -250,119 +499,41 @@ public class RefreshNestedLayout extends FrameLayout implements NestedScrollingP
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
-        final int action = event.getActionMasked();
-
-        if (mNestedScrollInProgress) {
-            return false;
-        }
-
-        int pointerIndex = -1;
-
-        if (mCurrentState == State.SCROLL_TO_BACK || mCurrentState == State.SCROLL_TO_REFRESH) {
-            mActivePointerId = event.getPointerId(0);
-            mIsBeingDragged = false;
-            pointerIndex = event.findPointerIndex(mActivePointerId);
-            if (pointerIndex < 0) {
-                return false;
-            }
-            mInitialDownY = event.getY(pointerIndex);
-            if (mCurrentSmoothScrollRunnable != null) {
-                mCurrentSmoothScrollRunnable.stop();
-            }
-            mCurrentState = State.MANUAL_SCROLLING;
-            mInitialDownY += -mHeaderLayout.getHeight() / DRAG_RATE - mTouchSlop;
-            mInitialMotionY = mInitialDownY;
-            return true;
-        }
-
-        if (mCurrentState == State.REFRESHING) {
-            mIsBeingDragged = true;
-        } else if (!isEnabled() || canChildScrollUp() || mNestedScrollInProgress) {
-            // Fail fast if we're not in a state where a swipe is possible
-            return false;
+        if (mTouchTrace != null) {
+            recordTouchEvent(TouchTrace.ROUTE_TOUCH, event);
         }
+        return mEngine.onTouchEvent(mTouchEvent.set(event));
+    }
 
-        switch (action) {
-            case MotionEvent.ACTION_DOWN: {
-                mActivePointerId = event.getPointerId(0);
-                mIsBeingDragged = false;
-                break;
-            }
-            case MotionEvent.ACTION_MOVE: {
-                pointerIndex = event.findPointerIndex(mActivePointerId);
-                if (pointerIndex < 0) {
-                    Log.e(LOG_TAG, "Got ACTION_MOVE event but have an invalid active pointer id.");
-                    return false;
-                }
-
-                final float y = event.getY(pointerIndex);
-                final float yDiff = y - mInitialDownY;
-                startDragging(yDiff);
-
-                final float overScrollTop = (mInitialMotionY - y) * DRAG_RATE;
-                if (mIsBeingDragged) {
-                    if (overScrollTop <= 0) {
-                        moveHeader((int) overScrollTop);
-                    } else {
-                        if (mCurrentSmoothScrollRunnable != null) {
-                            mCurrentSmoothScrollRunnable.stop();
-                        }
-                        mIsBeingDragged = false;
-                        setBodyScroll(0);
-                        return false;
-                    }
-                }
-                break;
-            }
-            case MotionEvent.ACTION_POINTER_DOWN: {
-                pointerIndex = event.getActionIndex();
-                if (pointerIndex < 0) {
-                    Log.e(LOG_TAG, "Got ACTION_POINTER_DOWN event but have an invalid action index.");
-                    return false;
-                }
-                float secondPointerY = event.getY(pointerIndex);
-                int secondPointerId = event.getPointerId(pointerIndex);
-
-                mInitialDownY = secondPointerY - mHeaderLayout.getHeight() / DRAG_RATE - mTouchSlop;
-                mActivePointerId = secondPointerId;
-                mIsBeingDragged = false;
-                break;
-            }
-            case MotionEvent.ACTION_POINTER_UP: {
-                onSecondaryPointerUp(event);
-                break;
-            }
-            case MotionEvent.ACTION_CANCEL:
-            case MotionEvent.ACTION_UP: {
-                pointerIndex = event.findPointerIndex(mActivePointerId);
-                if (pointerIndex < 0) {
-                    Log.e(LOG_TAG, "Got ACTION_UP event but don't have an active pointer id.");
-                    onReset();
-                    return false;
-                }
+    /**
+     * Record the touch events the layout handles from now on, to be replayed on a JVM with the {@code TraceReplayer}
+     * of the {@code refresh-replay} module. Nested scrolling input is not recorded.
+     */
+    public void startTouchTrace() {
+        mTouchTrace = TouchTrace.forEngine(mEngine);
+    }
 
-                if (mIsBeingDragged) {
-                    final float y = event.getY(pointerIndex);
-                    final float overScrollTop = (mInitialMotionY - y) * DRAG_RATE;
-                    mIsBeingDragged = false;
-                    finishHeader(overScrollTop);
-                }
-                mActivePointerId = INVALID_POINTER;
-                return false;
-            }
-        }
-        return true;
+    /**
+     * @return the trace recorded since {@link #startTouchTrace()}, or null if none was started.
+     */
+    @Nullable
+    public TouchTrace stopTouchTrace() {
+        TouchTrace trace = mTouchTrace;
+        mTouchTrace = null;
+        return trace;
     }
 
-    private void startDragging(float y) {
-        if (y > mTouchSlop && !mIsBeingDragged) {
-            mInitialMotionY = mInitialDownY + mTouchSlop;
-            mIsBeingDragged = true;
-        }
+    private void recordTouchEvent(int route, MotionEvent event) {
+        boolean childCanScrollUp = mRefreshableView != null && canChildScrollUpCached();
+        mTouchTrace.append(route, event.getEventTime(), mTouchEvent.set(event), isEnabled(), childCanScrollUp);
     }
 
     public final boolean isRefreshing() {
-        return mCurrentState == State.REFRESHING;
+        return mEngine.isRefreshing();
+    }
+
+    public RefreshState getState() {
+        return mEngine.getState();
     }
 
     @Override
@@ -373,192 +544,214 @@ public class RefreshNestedLayout extends FrameLayout implements NestedScrollingP
         }
     }
 
-    private void callRefreshListener() {
-        if (null != mOnRefreshListener) {
-            setState(State.REFRESHING);
-            mHeaderLayout.onRefreshBegin();
-            if (!mRefreshing) {
-                mRefreshing = true;
-                mOnRefreshListener.onRefresh();
-            }
-        } else {
-            mRefreshing = false;
-            setState(State.SCROLL_TO_BACK);
+    /**
+     * Replace the clock that drives the header animations, e.g. with a
+     * {@link com.eastwood.common.view.core.ManualFrameClock} in tests.
+     */
+    public void setFrameClock(@NonNull FrameClock frameClock) {
+        mEngine.getFrameClock().removeFrameCallback(mReleaseHeaderCallback);
+        mEngine.getFrameClock().removeFrameCallback(mLoadMoreCheckCallback);
+        mEngine.getFrameClock().removeFrameCallback(mAutoRefreshCallback);
+        mEngine.setFrameClock(frameClock);
+        if (mLoadMoreCheckPending) {
+            frameClock.postFrameCallback(mLoadMoreCheckCallback);
         }
+        if (mAutoRefreshPending) {
+            frameClock.postFrameCallbackDelayed(mAutoRefreshCallback, mRefreshPolicy.getAutoRefreshDebounce());
+        }
+        mHeaderDispatcher.setFrameClock(frameClock);
+        if (mMetricsRecorder != null) {
+            mMetricsRecorder.setFrameClock(frameClock);
+        }
+        releaseHeaderIfIdle();
     }
 
-    public View getRefreshableView() {
-        return mRefreshableView;
+    public FrameClock getFrameClock() {
+        return mEngine.getFrameClock();
     }
 
-    protected int getPullToRefreshScrollDuration() {
-        return SMOOTH_SCROLL_DURATION_MS;
+    /**
+     * Curve of the animation that hides the header. Use {@link RefreshCurves#of(android.animation.TimeInterpolator)}
+     * or {@link com.eastwood.common.view.core.LookupTableCurve} so it costs a table lookup per frame.
+     */
+    public void setSettleCurve(@NonNull Curve curve) {
+        mEngine.setSettleCurve(curve);
     }
 
-    private void smoothScrollTo(int scrollValue) {
-        smoothScrollTo(scrollValue, getPullToRefreshScrollDuration());
+    /**
+     * Curve of the animation from a released pull to the refreshing position.
+     */
+    public void setRefreshCurve(@NonNull Curve curve) {
+        mEngine.setRefreshCurve(curve);
     }
 
-    private void smoothScrollTo(int scrollValue, long duration) {
-        smoothScrollTo(scrollValue, duration, 0, null);
+    /**
+     * Curve of the animation that reveals the header for {@link #onAutoRefresh()}.
+     */
+    public void setAutoRefreshCurve(@NonNull Curve curve) {
+        mEngine.setAutoRefreshCurve(curve);
     }
 
-    private void smoothScrollTo(int scrollValue, OnSmoothScrollFinishedListener listener) {
-        smoothScrollTo(scrollValue, getPullToRefreshScrollDuration(), 0, listener);
+    public View getRefreshableView() {
+        return mRefreshableView;
     }
 
-    private void smoothScrollTo(int scrollValue, long delayMillis, OnSmoothScrollFinishedListener listener) {
-        smoothScrollTo(scrollValue, getPullToRefreshScrollDuration(), delayMillis, listener);
+    protected int getPullToRefreshScrollDuration() {
+        return SMOOTH_SCROLL_DURATION_MS;
     }
 
-    private void smoothScrollTo(int newScrollValue, long duration, long delayMillis, OnSmoothScrollFinishedListener listener) {
-        if (null != mCurrentSmoothScrollRunnable) {
-            mCurrentSmoothScrollRunnable.stop();
-        }
-
-        final int oldScrollValue = -mHeaderLayout.getHeight();
-
-        if (oldScrollValue != newScrollValue) {
-            if (null == mScrollAnimationInterpolator) {
-                // Default interpolator is a Decelerate Interpolator
-                mScrollAnimationInterpolator = new DecelerateInterpolator();
-            }
-            mCurrentSmoothScrollRunnable = new SmoothScrollRunnable(oldScrollValue, newScrollValue, duration, listener);
-
-            if (delayMillis > 0) {
-                postDelayed(mCurrentSmoothScrollRunnable, delayMillis);
-            } else {
-                post(mCurrentSmoothScrollRunnable);
-            }
-        } else {
-            mCurrentState = State.NONE;
+    private void setBodyScroll(int value) {
+        final Tracer tracer = mEngine.getTracer();
+        tracer.beginSection(TRACE_BODY_SCROLL);
+        try {
+            applyBodyScroll(value);
+        } finally {
+            tracer.endSection();
         }
     }
 
-    private void moveHeader(float needToScrollValue) {
-        if (needToScrollValue > 0) {
+    private void applyBodyScroll(int value) {
+        if (mHeaderDrawable != null) {
+            if (mHeaderDrawable.isMovable()) {
+                scrollTo(0, value);
+            }
+            // the canvas is in scrolled coordinates, keep the header at the top of the visible area
+            mHeaderDrawable.setHeaderBounds(0, getScrollY(), getWidth(), -value);
+            invalidate();
             return;
         }
-        if (needToScrollValue == 0) {
-            setBodyScroll(0);
+        if (mHeaderLayout == null) {
+            // pooled header not attached, the layout is at rest
             return;
         }
-
-        float actualScrolledValue;
-        if (needToScrollValue < -mPullMaxDistance) {
-            actualScrolledValue = -mPullMaxDistance;
-        } else {
-            actualScrolledValue = needToScrollValue;
-        }
-        mCurrentState = State.MANUAL_SCROLLING;
-        setBodyScroll((int) actualScrolledValue);
-
-        if (actualScrolledValue != 0 && !isRefreshing()) {
-            mHeaderLayout.onPull(-needToScrollValue);
+        if (mHeaderOffsetMode == HEADER_OFFSET_MODE_TRANSLATE) {
+            // the header keeps its full height above the top edge, only the visible part is moved in
+            if (mHeaderLayout.isMovable()) {
+                mHeaderLayout.setTranslationY(-mPullMaxDistance);
+                scrollTo(0, value);
+            } else {
+                mHeaderLayout.setTranslationY(-value - mPullMaxDistance);
+            }
+            return;
         }
 
-        if (actualScrolledValue < mPullMaxDistance && actualScrolledValue > -mPullMaxDistance) {
-            mHeaderLayout.alreadyToRefresh(false);
-        } else {
-            mHeaderLayout.alreadyToRefresh(true);
+        if (mHeaderLayout.isMovable()) {
+            scrollTo(0, value);
+            mHeaderLayout.setMargins(0, value, 0, 0);
         }
+        mHeaderLayout.setHeight(-value);
     }
 
-    private void finishHeader(float needToScrollValue) {
-        if (needToScrollValue <= -mPullMaxDistance) {
-            setState(State.SCROLL_TO_REFRESH);
+    private void applyHeaderOffsetMode() {
+        mHeaderLayout.setMargins(0, 0, 0, 0);
+        if (mHeaderOffsetMode == HEADER_OFFSET_MODE_TRANSLATE) {
+            mHeaderLayout.setHeight(mPullMaxDistance);
         } else {
-            setState(State.SCROLL_TO_BACK);
+            mHeaderLayout.setTranslationY(0);
+            scrollTo(0, 0);
         }
+        setBodyScroll(-mEngine.getHeaderOffset());
     }
 
-    private void setBodyScroll(int value) {
-        if (mHeaderLayout.isMovable()) {
-            scrollTo(0, value);
-            mHeaderLayout.setMargins(0, value, 0, 0);
+    /**
+     * Set how the header offset is applied while pulling and settling.
+     *
+     * @param mode {@link #HEADER_OFFSET_MODE_RESIZE} or {@link #HEADER_OFFSET_MODE_TRANSLATE}.
+     */
+    public void setHeaderOffsetMode(int mode) {
+        if (mode != HEADER_OFFSET_MODE_RESIZE && mode != HEADER_OFFSET_MODE_TRANSLATE) {
+            throw new IllegalArgumentException("Unknown header offset mode " + mode);
+        }
+        if (mHeaderOffsetMode == mode) {
+            return;
+        }
+        restoreLayers();
+        mHeaderOffsetMode = mode;
+        if (mHeaderLayout != null && mHeaderLayout.getParent() == this) {
+            applyHeaderOffsetMode();
         }
-        mHeaderLayout.setHeight(-value);
     }
 
-    final class SmoothScrollRunnable implements Runnable {
-
-        private final Interpolator mInterpolator;
-        private final int mScrollToY;
-        private final int mScrollFromY;
-        private final long mDuration;
-        private OnSmoothScrollFinishedListener mListener;
-
-        private boolean mContinueRunning = true;
-        private long mStartTime = -1;
-        private int mCurrentY = -1;
+    public int getHeaderOffsetMode() {
+        return mHeaderOffsetMode;
+    }
 
-        public SmoothScrollRunnable(int fromY, int toY, long duration, OnSmoothScrollFinishedListener listener) {
-            mScrollFromY = fromY;
-            mScrollToY = toY;
-            mInterpolator = mScrollAnimationInterpolator;
-            mDuration = duration;
-            mListener = listener;
+    /**
+     * Render the header and the refreshable view into hardware layers while they are dragged or settling, so
+     * moving them doesn't redraw their content every frame. Only views that keep their size are promoted:
+     * the header in {@link #HEADER_OFFSET_MODE_TRANSLATE}, the refreshable view when the header is movable.
+     */
+    public void setHardwareLayersDuringMotion(boolean enabled) {
+        mHardwareLayersDuringMotion = enabled;
+        if (!enabled) {
+            restoreLayers();
         }
+    }
 
-        @Override
-        public void run() {
-            /**
-             * Only set mStartTime if this is the first time we're starting,
-             * else actually calculate the Y delta
-             */
-            if (mStartTime == -1) {
-                mStartTime = System.currentTimeMillis();
-            } else if (mIsBeingDragged) {
-                return;
-            } else {
-                /**
-                 * We do do all calculations in long to reduce software float
-                 * calculations. We use 1000 as it gives us good accuracy and
-                 * small rounding errors
-                 */
-                long normalizedTime = (1000 * (System.currentTimeMillis() - mStartTime)) / mDuration;
-                normalizedTime = Math.max(Math.min(normalizedTime, 1000), 0);
-
-                final int deltaY = Math.round((mScrollFromY - mScrollToY) * mInterpolator.getInterpolation(normalizedTime / 1000f));
-                mCurrentY = mScrollFromY - deltaY;
-                setBodyScroll(mCurrentY);
-            }
+    public boolean isHardwareLayersDuringMotion() {
+        return mHardwareLayersDuringMotion;
+    }
 
-            // If we're not at the target Y, keep going...
-            if (mContinueRunning && mScrollToY != mCurrentY) {
-                ViewCompat.postOnAnimation(RefreshNestedLayout.this, this);
-            } else {
-                mHeaderLayout.onRefreshCancel();
-                mCurrentState = State.NONE;
-                if (null != mListener) {
-                    mListener.onSmoothScrollFinished();
-                }
-            }
+    private void promoteLayers() {
+        RefreshHeader header = getHeader();
+        if (mLayerHeader != null || mLayerBody != null || header == null) {
+            return;
         }
-
-        public void stop() {
-            mContinueRunning = false;
-            removeCallbacks(this);
+        if (mHeaderLayout != null && mHeaderOffsetMode == HEADER_OFFSET_MODE_TRANSLATE) {
+            mLayerHeader = mHeaderLayout;
+            mSavedHeaderLayerType = mLayerHeader.getLayerType();
+            mLayerHeader.setLayerType(LAYER_TYPE_HARDWARE, null);
+        }
+        if (header.isMovable() && mRefreshableView != null) {
+            mLayerBody = mRefreshableView;
+            mSavedBodyLayerType = mLayerBody.getLayerType();
+            mLayerBody.setLayerType(LAYER_TYPE_HARDWARE, null);
         }
     }
 
-    private OnSmoothScrollFinishedListener mOnSmoothScrollFinishedListener = new OnSmoothScrollFinishedListener() {
-
-        @Override
-        public void onSmoothScrollFinished() {
-            callRefreshListener();
+    private void restoreLayers() {
+        if (mLayerHeader != null) {
+            mLayerHeader.setLayerType(mSavedHeaderLayerType, null);
+            mLayerHeader = null;
         }
-    };
+        if (mLayerBody != null) {
+            mLayerBody.setLayerType(mSavedBodyLayerType, null);
+            mLayerBody = null;
+        }
+    }
 
+    /**
+     * @return whether the refreshable view can scroll up, asked anew on every call.
+     */
     public boolean canChildScrollUp() {
         if (mChildScrollUpCallback != null) {
             return mChildScrollUpCallback.canChildScrollUp(this, mRefreshableView);
         }
 
-        if (mRefreshableView instanceof ListView) {
-            return ListViewCompat.canScrollList((ListView) mRefreshableView, -1);
+        if (mChildScrollStrategyTarget != mRefreshableView) {
+            mChildScrollStrategyTarget = mRefreshableView;
+            mChildScrollStrategy = ChildScrollStrategies.forView(mRefreshableView);
+        }
+        return mChildScrollStrategy.canScrollUp(mRefreshableView);
+    }
+
+    // the gesture paths ask several times per event, the answer is kept until the next event or scroll
+    private boolean canChildScrollUpCached() {
+        if (!mCanChildScrollUpValid) {
+            mCanChildScrollUp = canChildScrollUp();
+            mCanChildScrollUpValid = true;
         }
-        return mRefreshableView.canScrollVertically(-1);
+        return mCanChildScrollUp;
+    }
+
+    /**
+     * Override the {@link ChildScrollStrategy} resolved from {@link ChildScrollStrategies} for the
+     * refreshable view. Pass null to resolve it again.
+     */
+    public void setChildScrollStrategy(@Nullable ChildScrollStrategy strategy) {
+        mChildScrollStrategy = strategy;
+        mChildScrollStrategyTarget = strategy == null ? null : mRefreshableView;
+        mCanChildScrollUpValid = false;
     }
 
     /**
@@ -569,10 +762,7 @@ public class RefreshNestedLayout extends FrameLayout implements NestedScrollingP
      */
     public void setOnChildScrollUpCallback(@Nullable OnChildScrollUpCallback callback) {
         mChildScrollUpCallback = callback;
-    }
-
-    interface OnSmoothScrollFinishedListener {
-        void onSmoothScrollFinished();
+        mCanChildScrollUpValid = false;
     }
 
     public interface OnRefreshListener {
@@ -600,82 +790,726 @@ public class RefreshNestedLayout extends FrameLayout implements NestedScrollingP
         mOnRefreshListener = listener;
     }
 
-    public enum State {
-
-        NONE,
+    public void setOnStateChangeListener(@Nullable OnStateChangeListener listener) {
+        mOnStateChangeListener = listener;
+    }
 
-        SCROLL_TO_BACK,
+    public interface OnStateChangeListener {
 
-        AUTO_REFRESH,
+        /**
+         * Called on the UI thread for every accepted state transition, never for a transition into the same state.
+         */
+        void onStateChanged(@NonNull RefreshState oldState, @NonNull RefreshState newState);
+    }
 
-        SCROLL_TO_REFRESH,
+    /**
+     * @return how many transitions the state machine rejected because they would have had no effect.
+     */
+    public int getRedundantTransitionCount() {
+        return mEngine.getRedundantTransitionCount();
+    }
+
+    /**
+     * @return how many transitions the state machine rejected because they are not allowed.
+     */
+    public int getIllegalTransitionCount() {
+        return mEngine.getIllegalTransitionCount();
+    }
+
+    /**
+     * Refresh through a {@link RefreshRequest} that completes itself, instead of a later call to
+     * {@link #onRefreshComplete()}. Takes precedence over {@link #setOnRefreshListener(OnRefreshListener)}.
+     */
+    public final void setOnAsyncRefreshListener(@Nullable OnAsyncRefreshListener listener) {
+        mOnAsyncRefreshListener = listener;
+    }
+
+    /**
+     * Executor that {@link OnAsyncRefreshListener#onRefresh(RefreshRequest)} is called on, null to call it on
+     * the UI thread.
+     */
+    public void setRefreshExecutor(@Nullable Executor executor) {
+        mRefreshExecutor = executor;
+    }
+
+    /**
+     * Cancel the refresh and collapse the header if it hasn't completed after the given time, 0 to wait forever.
+     */
+    public void setRefreshTimeout(long timeoutMillis) {
+        mEngine.setRefreshTimeout(timeoutMillis);
+    }
+
+    public long getRefreshTimeout() {
+        return mEngine.getRefreshTimeout();
+    }
+
+    public interface OnAsyncRefreshListener {
+
+        /**
+         * Called once per refresh, a pull or {@link #onAutoRefresh()} while a refresh is in flight joins it.
+         *
+         * @param request call {@link RefreshRequest#complete()} on it from any thread when done.
+         * @return a handle to stop the work when the refresh is cancelled or times out, or null.
+         */
+        @Nullable
+        RefreshTask onRefresh(@NonNull RefreshRequest request);
+    }
+
+    /**
+     * Report the cost of every drag and settle animation to the given listener, or stop reporting when null.
+     */
+    public void setOnRefreshMetricsListener(@Nullable OnRefreshMetricsListener listener) {
+        if (mMetricsRecorder != null) {
+            mMetricsRecorder.end();
+        }
+        mMetricsRecorder = listener == null ? null : new MetricsRecorder(listener);
+    }
+
+    MetricsRecorder getMetricsRecorder() {
+        return mMetricsRecorder;
+    }
+
+    /**
+     * Record the latencies of every refresh cycle into the given histograms, or stop recording when null.
+     */
+    public void setRefreshLatencies(@Nullable RefreshLatencies latencies) {
+        mRefreshLatencies = latencies;
+        mPullStartMillis = -1;
+        mRefreshStartMillis = -1;
+        mRefreshCompleteMillis = -1;
+    }
+
+    @Nullable
+    public RefreshLatencies getRefreshLatencies() {
+        return mRefreshLatencies;
+    }
+
+    /**
+     * Write systrace / Perfetto sections for touch handling, header movement, animation frames and header
+     * callbacks, and an async section for each pull or refresh from its start until it completes. Off by default.
+     */
+    public void setTracingEnabled(boolean enabled) {
+        endRefreshTraceSection();
+        mEngine.setTracer(enabled ? SystraceTracer.INSTANCE : Tracer.NONE);
+    }
+
+    public boolean isTracingEnabled() {
+        return mEngine.getTracer() != Tracer.NONE;
+    }
+
+    Tracer getTracer() {
+        return mEngine.getTracer();
+    }
+
+    private void beginRefreshTraceSection() {
+        if (mRefreshTraceCookie != 0 || mEngine.getTracer() == Tracer.NONE) {
+            return;
+        }
+        sRefreshTraceCookie = sRefreshTraceCookie == Integer.MAX_VALUE ? 1 : sRefreshTraceCookie + 1;
+        mRefreshTraceCookie = sRefreshTraceCookie;
+        mEngine.getTracer().beginAsyncSection(TRACE_REFRESH, mRefreshTraceCookie);
+    }
+
+    private void endRefreshTraceSection() {
+        if (mRefreshTraceCookie != 0) {
+            mEngine.getTracer().endAsyncSection(TRACE_REFRESH, mRefreshTraceCookie);
+            mRefreshTraceCookie = 0;
+        }
+    }
+
+    /**
+     * Merge {@link RefreshHeader#onPull(float)} calls to at most one per frame, enabled by default.
+     */
+    public void setHeaderPullCoalescing(boolean enabled) {
+        mHeaderDispatcher.setCoalescePull(enabled);
+    }
+
+    /**
+     * Round the value passed to {@link RefreshHeader#onPull(float)} to a multiple of the given step in pixels,
+     * and skip the call when the rounded value didn't change. 0, the default, passes the exact value.
+     */
+    public void setHeaderPullStep(float step) {
+        mHeaderDispatcher.setPullStep(step);
+    }
+
+    public interface OnRefreshMetricsListener {
+
+        /**
+         * Called on the UI thread when a drag or a settle animation ends.
+         */
+        void onRefreshMetrics(RefreshMetrics metrics);
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        if (mMetricsRecorder != null) {
+            mMetricsRecorder.onLayout();
+        }
+    }
+
+    protected void setState(RefreshState state) {
+        mEngine.setState(state);
+    }
+
+    /**
+     * @deprecated use {@link RefreshState}, kept for one release so subclasses written against it still compile.
+     */
+    @Deprecated
+    public enum State {
+
+        NONE,
+
+        SCROLL_TO_BACK,
+
+        AUTO_REFRESH,
+
+        SCROLL_TO_REFRESH,
 
         MANUAL_SCROLLING,
 
         REFRESHING;
 
+        RefreshState toRefreshState() {
+            return RefreshState.valueOf(name());
+        }
+
     }
 
+    /**
+     * @deprecated use {@link #setState(RefreshState)}.
+     */
+    @Deprecated
     protected void setState(State state) {
-        switch (state) {
-            case SCROLL_TO_BACK:
-                onReset();
-                break;
-            case SCROLL_TO_REFRESH:
-                mCurrentState = State.SCROLL_TO_REFRESH;
-                smoothScrollTo(-mRefreshingDistance, mOnSmoothScrollFinishedListener);
-                break;
-            case AUTO_REFRESH:
-                mCurrentState = State.SCROLL_TO_REFRESH;
-                smoothScrollTo(-mPullMaxDistance, 350, 0, new OnSmoothScrollFinishedListener() {
-
-                    @Override
-                    public void onSmoothScrollFinished() {
-                        mCurrentState = State.SCROLL_TO_REFRESH;
-                        postDelayed(new Runnable() {
-                            @Override
-                            public void run() {
-                                setState(State.SCROLL_TO_REFRESH);
-                            }
-                        }, 150);
-                    }
-                });
-                break;
-            case REFRESHING:
-                mIsBeingDragged = false;
-                mCurrentState = State.REFRESHING;
-                break;
-        }
+        setState(state.toRefreshState());
     }
 
     protected void onReset() {
-        mIsBeingDragged = false;
-        mCurrentState = State.SCROLL_TO_BACK;
-        mActivePointerId = INVALID_POINTER;
-        smoothScrollTo(0);
+        mEngine.reset();
     }
 
     public void onAutoRefresh() {
-        setState(State.AUTO_REFRESH);
+        if (mRefreshPolicy == null) {
+            requestAutoRefresh();
+            return;
+        }
+        long debounce = mRefreshPolicy.getAutoRefreshDebounce();
+        if (debounce <= 0) {
+            autoRefreshIfNeeded();
+            return;
+        }
+        mAutoRefreshPending = true;
+        // Choreographer would run a callback once per post, restart the wait instead
+        final FrameClock frameClock = mEngine.getFrameClock();
+        frameClock.removeFrameCallback(mAutoRefreshCallback);
+        frameClock.postFrameCallbackDelayed(mAutoRefreshCallback, debounce);
+    }
+
+    private final FrameClock.FrameCallback mAutoRefreshCallback = new FrameClock.FrameCallback() {
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mAutoRefreshPending = false;
+            if (mRefreshPolicy != null) {
+                autoRefreshIfNeeded();
+            }
+        }
+    };
+
+    private void autoRefreshIfNeeded() {
+        if (mEngine.isRefreshing()
+                || mRefreshPolicy.decide(SystemClock.elapsedRealtime()) == RefreshPolicy.DECISION_REFRESH) {
+            requestAutoRefresh();
+        }
+    }
+
+    private void requestAutoRefresh() {
+        if (mRefreshCoordinator == null) {
+            mEngine.autoRefresh();
+            return;
+        }
+        mRefreshCoordinator.requestAutoRefresh(this);
+    }
+
+    /**
+     * Called by the coordinator once this layout may auto refresh.
+     *
+     * @return true if the header is now on its way to refreshing, false if the engine declined, e.g. while dragged.
+     */
+    boolean startAutoRefresh() {
+        mEngine.autoRefresh();
+        RefreshState state = mEngine.getState();
+        mAutoRefreshRunning = state == RefreshState.SCROLL_TO_REFRESH || state == RefreshState.REFRESHING;
+        return mAutoRefreshRunning;
+    }
+
+    /**
+     * Drive the header animations from the given coordinator's shared frame callback, or from a clock of its own
+     * when null.
+     */
+    public void setRefreshCoordinator(@Nullable RefreshCoordinator coordinator) {
+        if (mRefreshCoordinator == coordinator) {
+            return;
+        }
+        if (mRefreshCoordinator != null) {
+            mRefreshCoordinator.onAutoRefreshDone(this);
+            mAutoRefreshRunning = false;
+        }
+        mRefreshCoordinator = coordinator;
+        setFrameClock(coordinator != null ? coordinator.getFrameClock() : new ChoreographerFrameClock(this));
+    }
+
+    @Nullable
+    public RefreshCoordinator getRefreshCoordinator() {
+        return mRefreshCoordinator;
+    }
+
+    /**
+     * Throttle refreshes, skip them while the data is fresh and debounce {@link #onAutoRefresh()}, or refresh
+     * every time when null, the default.
+     */
+    public void setRefreshPolicy(@Nullable RefreshPolicy policy) {
+        mRefreshPolicy = policy;
+        if (policy == null && mAutoRefreshPending) {
+            mEngine.getFrameClock().removeFrameCallback(mAutoRefreshCallback);
+            mAutoRefreshPending = false;
+        }
+    }
+
+    @Nullable
+    public RefreshPolicy getRefreshPolicy() {
+        return mRefreshPolicy;
+    }
+
+    /**
+     * @return true if the refresh in flight was started on fresh data, see
+     * {@link RefreshPolicy#setSoftRefreshWhenFresh(boolean)}, e.g. to update it quietly instead of replacing it.
+     */
+    public boolean isSoftRefresh() {
+        return mSoftRefresh;
     }
 
     public void onRefreshComplete() {
-        mRefreshing = false;
+        endRefreshTraceSection();
+        if (mRefreshStartMillis >= 0) {
+            long now = SystemClock.uptimeMillis();
+            mRefreshLatencies.getBeginToComplete().record(now - mRefreshStartMillis);
+            mRefreshStartMillis = -1;
+            mRefreshCompleteMillis = now;
+        }
+        mRefreshRequest = null;
+        mSoftRefresh = false;
+        if (mEngine.refreshComplete()) {
+            if (mRefreshPolicy != null) {
+                mRefreshPolicy.onRefreshCompleted(SystemClock.elapsedRealtime());
+            }
+            // a refreshed feed starts over, so it may have more pages again
+            mHasMore = true;
+        }
+        scheduleLoadMoreCheck();
+    }
 
-        if (mCurrentState == State.MANUAL_SCROLLING) {
+    public final void setOnLoadMoreListener(@Nullable OnLoadMoreListener listener) {
+        mOnLoadMoreListener = listener;
+        scheduleLoadMoreCheck();
+    }
+
+    /**
+     * Show the given footer at the bottom while the next page is loading, or none when null.
+     */
+    public void setRefreshFooter(@Nullable RefreshFooterLayout footer) {
+        if (mFooterLayout != null) {
+            removeView(mFooterLayout);
+        }
+        mFooterLayout = footer;
+        if (footer != null) {
+            footer.setVisibility(mLoadingMore ? VISIBLE : GONE);
+            addView(footer);
+        }
+    }
+
+    /**
+     * Load the next page once no more than this many items are left below the visible ones, for
+     * AbsListView and RecyclerView with a LinearLayoutManager. 3 by default.
+     */
+    public void setLoadMoreThreshold(int items) {
+        mLoadMoreThresholdItems = items;
+    }
+
+    /**
+     * Load the next page once no more than this many pixels of content are left below the visible area, for
+     * views whose content height is known. 0, the end of the content, by default.
+     */
+    public void setLoadMoreThresholdPixels(int pixels) {
+        mLoadMoreThresholdPixels = pixels;
+    }
+
+    public boolean isLoadingMore() {
+        return mLoadingMore;
+    }
+
+    /**
+     * Call when the page requested by {@link OnLoadMoreListener#onLoadMore()} has been added.
+     *
+     * @param hasMore false if it was the last page, load more stays off until the next refresh completes.
+     */
+    public void onLoadMoreComplete(boolean hasMore) {
+        if (!mLoadingMore) {
             return;
         }
-        if (mHeaderLayout != null) {
-            mHeaderLayout.onRefreshFinish();
+        mLoadingMore = false;
+        mHasMore = hasMore;
+        if (mFooterLayout != null) {
+            mFooterLayout.onLoadMoreFinish(hasMore);
+            mFooterLayout.setVisibility(GONE);
+        }
+        // a short page may still leave the end in reach
+        scheduleLoadMoreCheck();
+    }
+
+    public interface OnLoadMoreListener {
+
+        /**
+         * Called once per page, not again until {@link #onLoadMoreComplete(boolean)}.
+         */
+        void onLoadMore();
+    }
+
+    private void scheduleLoadMoreCheck() {
+        if (mOnLoadMoreListener == null || mLoadMoreCheckPending) {
+            return;
+        }
+        mLoadMoreCheckPending = true;
+        mEngine.getFrameClock().postFrameCallback(mLoadMoreCheckCallback);
+    }
+
+    // checked on the next frame rather than from the scroll itself, so the listener can change the adapter safely
+    private final FrameClock.FrameCallback mLoadMoreCheckCallback = new FrameClock.FrameCallback() {
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mLoadMoreCheckPending = false;
+            checkLoadMore();
+        }
+    };
+
+    private void checkLoadMore() {
+        if (mOnLoadMoreListener == null || mLoadingMore || !mHasMore || mRefreshableView == null
+                || mEngine.isRefreshInFlight()) {
+            return;
+        }
+
+        int items = ChildScrollExtent.itemsBelow(mRefreshableView);
+        boolean nearEnd = items != ChildScrollExtent.UNKNOWN && items <= mLoadMoreThresholdItems;
+        if (!nearEnd) {
+            int pixels = ChildScrollExtent.pixelsBelow(mRefreshableView);
+            nearEnd = pixels != ChildScrollExtent.UNKNOWN && pixels <= mLoadMoreThresholdPixels;
+        }
+        if (!nearEnd) {
+            return;
+        }
+
+        mLoadingMore = true;
+        if (mFooterLayout != null) {
+            mFooterLayout.setVisibility(VISIBLE);
+            mFooterLayout.onLoadMoreBegin();
+        }
+        mOnLoadMoreListener.onLoadMore();
+    }
+
+    /**
+     * Abandon the refresh in flight and collapse the header.
+     */
+    public void cancelRefresh() {
+        mEngine.cancelRefresh();
+    }
+
+    void onRefreshRequestComplete(RefreshRequest request) {
+        if (request == mRefreshRequest) {
+            onRefreshComplete();
+        } else if (request == mSpeculativeRequest) {
+            // finished before the pull was released, completed as soon as it is adopted
+            mSpeculativeRequestCompleted = true;
+        }
+    }
+
+    /**
+     * Start the {@link OnAsyncRefreshListener} as soon as a pull passes the refresh threshold instead of after the
+     * header has settled, and cancel it if the pull is released below the threshold. Off by default, only used with
+     * an {@link OnAsyncRefreshListener}, as the work must be cancellable.
+     */
+    public void setRefreshPrefetchEnabled(boolean enabled) {
+        mRefreshPrefetchEnabled = enabled;
+        if (!enabled) {
+            cancelSpeculativeRequest();
+        }
+    }
+
+    public boolean isRefreshPrefetchEnabled() {
+        return mRefreshPrefetchEnabled;
+    }
+
+    private void startSpeculativeRequest() {
+        if (!mRefreshPrefetchEnabled || mOnAsyncRefreshListener == null
+                || mSpeculativeRequest != null || mRefreshRequest != null || mEngine.isRefreshing()) {
+            return;
+        }
+        if (mRefreshPolicy != null
+                && mRefreshPolicy.decide(SystemClock.elapsedRealtime()) != RefreshPolicy.DECISION_REFRESH) {
+            // decided again on release, nothing to prefetch for a skipped or soft refresh
+            return;
+        }
+        mSpeculativeRequestCompleted = false;
+        mSpeculativeRequest = startRefreshRequest();
+    }
+
+    private void cancelSpeculativeRequest() {
+        if (mSpeculativeRequest != null) {
+            mSpeculativeRequest.cancel();
+            mSpeculativeRequest = null;
+        }
+    }
+
+    private void onRefresh() {
+        if (mRefreshPolicy != null) {
+            long now = SystemClock.elapsedRealtime();
+            // a prefetched request already passed the policy
+            int decision = mSpeculativeRequest == null ? mRefreshPolicy.decide(now) : RefreshPolicy.DECISION_REFRESH;
+            if (decision == RefreshPolicy.DECISION_SKIP) {
+                // let the header play its refresh animation and collapse it without loading anything
+                mEngine.refreshComplete();
+                return;
+            }
+            mSoftRefresh = decision == RefreshPolicy.DECISION_SOFT_REFRESH;
+            mRefreshPolicy.onRefreshStarted(now);
+        }
+        if (mRefreshLatencies != null) {
+            mRefreshStartMillis = SystemClock.uptimeMillis();
+        }
+        if (mOnAsyncRefreshListener == null) {
+            mOnRefreshListener.onRefresh();
+            return;
+        }
+        if (mSpeculativeRequest == null) {
+            mRefreshRequest = startRefreshRequest();
+            return;
+        }
+        mRefreshRequest = mSpeculativeRequest;
+        mSpeculativeRequest = null;
+        if (mSpeculativeRequestCompleted) {
+            onRefreshComplete();
+        }
+    }
+
+    private RefreshRequest startRefreshRequest() {
+        final OnAsyncRefreshListener listener = mOnAsyncRefreshListener;
+        final RefreshRequest request = new RefreshRequest(this, mSoftRefresh);
+        if (mRefreshExecutor == null) {
+            request.setTask(listener.onRefresh(request));
+            return request;
+        }
+        mRefreshExecutor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                if (!request.isCancelled()) {
+                    request.setTask(listener.onRefresh(request));
+                }
+            }
+        });
+        return request;
+    }
+
+    private void recordLatencies(RefreshState oldState, RefreshState newState) {
+        if (oldState == RefreshState.NONE && newState == RefreshState.MANUAL_SCROLLING) {
+            mPullStartMillis = SystemClock.uptimeMillis();
+        } else if (newState == RefreshState.NONE) {
+            // a pull released below the threshold never began
+            mPullStartMillis = -1;
+            if (mRefreshCompleteMillis >= 0) {
+                mRefreshLatencies.getCompleteToIdle().record(SystemClock.uptimeMillis() - mRefreshCompleteMillis);
+                mRefreshCompleteMillis = -1;
+            }
+        }
+    }
+
+    private void commitBodyScroll() {
+        final MetricsRecorder recorder = mMetricsRecorder;
+        if (recorder == null) {
+            setBodyScroll(-mEngine.getHeaderOffset());
+            return;
+        }
+        long start = recorder.beginBodyScroll();
+        setBodyScroll(-mEngine.getHeaderOffset());
+        recorder.endBodyScroll(start);
+    }
+
+    private final FrameClock.FrameCallback mBodyScrollCommit = new FrameClock.FrameCallback() {
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            commitBodyScroll();
+        }
+    };
+
+    private final class EngineCallback implements RefreshEngine.Callback {
+
+        @Override
+        public boolean isEnabled() {
+            return RefreshNestedLayout.this.isEnabled();
+        }
+
+        @Override
+        public boolean canChildScrollUp() {
+            return canChildScrollUpCached();
+        }
+
+        @Override
+        public void onHeaderOffsetChanged(int offset) {
+            final FrameClock frameClock = mEngine.getFrameClock();
+            if (frameClock instanceof SharedFrameClock && ((SharedFrameClock) frameClock).isInFrame()) {
+                // applied together with the other layouts of the window once every animation stepped
+                ((SharedFrameClock) frameClock).postFrameCommit(mBodyScrollCommit);
+                return;
+            }
+            commitBodyScroll();
+        }
+
+        @Override
+        public void onPull(float scrollValue) {
+            mHeaderDispatcher.onPull(scrollValue);
+        }
+
+        @Override
+        public void alreadyToRefresh(boolean alreadyToRefresh) {
+            if (alreadyToRefresh) {
+                startSpeculativeRequest();
+            }
+            mHeaderDispatcher.alreadyToRefresh(alreadyToRefresh);
+        }
+
+        @Override
+        public void onRefreshBegin() {
+            mHeaderDispatcher.onRefreshBegin();
+            if (mPullStartMillis >= 0) {
+                mRefreshLatencies.getPullToBegin().record(SystemClock.uptimeMillis() - mPullStartMillis);
+                mPullStartMillis = -1;
+            }
+        }
+
+        @Override
+        public void onRefreshFinish() {
+            mHeaderDispatcher.onRefreshFinish();
+        }
+
+        @Override
+        public void onRefreshCancel() {
+            mHeaderDispatcher.onRefreshCancel();
+        }
+
+        @Override
+        public boolean hasRefreshListener() {
+            return mOnRefreshListener != null || mOnAsyncRefreshListener != null;
+        }
+
+        @Override
+        public void onRefresh() {
+            RefreshNestedLayout.this.onRefresh();
+        }
+
+        @Override
+        public void onRefreshAbandoned() {
+            mSoftRefresh = false;
+            endRefreshTraceSection();
+            mRefreshStartMillis = -1;
+            if (mRefreshRequest != null) {
+                mRefreshRequest.cancel();
+                mRefreshRequest = null;
+            }
+        }
+
+        @Override
+        public void onStateChanged(RefreshState oldState, RefreshState newState) {
+            if (mRefreshLatencies != null) {
+                recordLatencies(oldState, newState);
+            }
+            if (oldState == RefreshState.NONE) {
+                beginRefreshTraceSection();
+            } else if (newState == RefreshState.NONE) {
+                // a pull released below the threshold, refreshes end on completion
+                endRefreshTraceSection();
+            }
+            if (mAutoRefreshRunning && newState == RefreshState.NONE) {
+                mAutoRefreshRunning = false;
+                mRefreshCoordinator.onAutoRefreshDone(RefreshNestedLayout.this);
+            }
+            if (mSpeculativeRequest != null && (newState == RefreshState.SCROLL_TO_BACK || newState == RefreshState.NONE)) {
+                // released below the threshold
+                cancelSpeculativeRequest();
+            }
+            if (mHeaderPool != null) {
+                if (newState == RefreshState.NONE) {
+                    mEngine.getFrameClock().postFrameCallback(mReleaseHeaderCallback);
+                } else {
+                    mEngine.getFrameClock().removeFrameCallback(mReleaseHeaderCallback);
+                    attachHeader();
+                }
+            }
+            if (mHardwareLayersDuringMotion) {
+                if (newState == RefreshState.MANUAL_SCROLLING || newState == RefreshState.SCROLL_TO_BACK
+                        || newState == RefreshState.SCROLL_TO_REFRESH) {
+                    promoteLayers();
+                } else {
+                    // a refreshing header animates its content, a layer would only be redrawn every frame
+                    restoreLayers();
+                }
+            }
+            if (mMetricsRecorder != null) {
+                mMetricsRecorder.onStateChanged(newState, mEngine.getFrameClock());
+            }
+            if (mOnStateChangeListener != null) {
+                mOnStateChangeListener.onStateChanged(oldState, newState);
+            }
         }
-        setState(State.SCROLL_TO_BACK);
     }
 
     // NestedScrollingParent
 
     @Override
     public boolean onStartNestedScroll(View child, View target, int nestedScrollAxes) {
-        boolean result = isEnabled() && (nestedScrollAxes & ViewCompat.SCROLL_AXIS_VERTICAL) != 0;
+        return onStartNestedScroll(child, target, nestedScrollAxes, ViewCompat.TYPE_TOUCH);
+    }
+
+    @Override
+    public void onNestedScrollAccepted(View child, View target, int axes) {
+        onNestedScrollAccepted(child, target, axes, ViewCompat.TYPE_TOUCH);
+    }
+
+    @Override
+    public void onNestedPreScroll(View target, int dx, int dy, int[] consumed) {
+        onNestedPreScroll(target, dx, dy, consumed, ViewCompat.TYPE_TOUCH);
+    }
+
+    @Override
+    public int getNestedScrollAxes() {
+        return mNestedScrollingParentHelper.getNestedScrollAxes();
+    }
+
+    @Override
+    public void onStopNestedScroll(View target) {
+        onStopNestedScroll(target, ViewCompat.TYPE_TOUCH);
+    }
+
+    @Override
+    public void onNestedScroll(View target, int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed) {
+        onNestedScroll(target, dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed, ViewCompat.TYPE_TOUCH);
+    }
+
+    // NestedScrollingParent2
+
+    @Override
+    public boolean onStartNestedScroll(@NonNull View child, @NonNull View target, int axes, int type) {
+        boolean result = isEnabled() && (axes & ViewCompat.SCROLL_AXIS_VERTICAL) != 0;
         if (result) {
             if (!mRefreshableView.canScrollVertically(1)) {
                 return false;
@@ -685,72 +1519,50 @@ public class RefreshNestedLayout extends FrameLayout implements NestedScrollingP
     }
 
     @Override
-    public void onNestedScrollAccepted(View child, View target, int axes) {
+    public void onNestedScrollAccepted(@NonNull View child, @NonNull View target, int axes, int type) {
         // Reset the counter of how much leftover scroll needs to be consumed.
-        mNestedScrollingParentHelper.onNestedScrollAccepted(child, target, axes);
+        mNestedScrollingParentHelper.onNestedScrollAccepted(child, target, axes, type);
         // Dispatch up to the nested parent
-        startNestedScroll(axes & ViewCompat.SCROLL_AXIS_VERTICAL);
-        mTotalUnconsumed = mCurrentState == State.REFRESHING ? -mRefreshingDistance / DRAG_RATE : 0;
-        mNestedScrollInProgress = true;
+        startNestedScroll(axes & ViewCompat.SCROLL_AXIS_VERTICAL, type);
+        if (type == ViewCompat.TYPE_TOUCH) {
+            attachHeaderForGesture();
+            mEngine.onNestedScrollAccepted();
+        }
     }
 
     @Override
-    public void onNestedPreScroll(View target, int dx, int dy, int[] consumed) {
-        // If we are in the middle of consuming, a scroll, then we want to move the spinner back up
-        // before allowing the list to scroll
-        if (dy > 0) {
-            if (mTotalUnconsumed > 0) {
-                if (dy > mTotalUnconsumed) {
-                    consumed[1] = dy - (int) mTotalUnconsumed;
-                    mTotalUnconsumed = 0;
-                } else {
-                    mTotalUnconsumed -= dy;
-                    consumed[1] = dy;
-                }
-            } else {
-                if (dy > Math.abs(mTotalUnconsumed)) {
-                    consumed[1] = (int) mTotalUnconsumed - dy;
-                    mTotalUnconsumed = 0;
-                } else {
-                    mTotalUnconsumed += dy;
-                    consumed[1] = dy;
-                }
-            }
-            moveHeader(mTotalUnconsumed * DRAG_RATE);
+    public void onNestedPreScroll(@NonNull View target, int dx, int dy, @NonNull int[] consumed, int type) {
+        mCanChildScrollUpValid = false;
+        if (type == ViewCompat.TYPE_TOUCH) {
+            consumed[1] = mEngine.onNestedPreScroll(dy);
         }
 
         // Now let our nested parent consume the leftovers
         final int[] parentConsumed = mParentScrollConsumed;
-        if (dispatchNestedPreScroll(dx - consumed[0], dy - consumed[1], parentConsumed, null)) {
+        if (dispatchNestedPreScroll(dx - consumed[0], dy - consumed[1], parentConsumed, null, type)) {
             consumed[0] += parentConsumed[0];
             consumed[1] += parentConsumed[1];
         }
     }
 
     @Override
-    public int getNestedScrollAxes() {
-        return mNestedScrollingParentHelper.getNestedScrollAxes();
-    }
-
-    @Override
-    public void onStopNestedScroll(View target) {
-        mNestedScrollingParentHelper.onStopNestedScroll(target);
-        mNestedScrollInProgress = false;
-
-        // Finish the spinner for nested scrolling if we ever consumed any
-        // unconsumed nested scroll
-        if (mTotalUnconsumed != 0 && mCurrentState != State.REFRESHING) {
-            finishHeader(mTotalUnconsumed * DRAG_RATE);
-            mTotalUnconsumed = 0;
+    public void onStopNestedScroll(@NonNull View target, int type) {
+        mNestedScrollingParentHelper.onStopNestedScroll(target, type);
+        if (type == ViewCompat.TYPE_TOUCH) {
+            mEngine.onStopNestedScroll();
         }
         // Dispatch up our nested parent
-        stopNestedScroll();
+        stopNestedScroll(type);
     }
 
     @Override
-    public void onNestedScroll(final View target, final int dxConsumed, final int dyConsumed, final int dxUnconsumed, final int dyUnconsumed) {
+    public void onNestedScroll(@NonNull final View target, final int dxConsumed, final int dyConsumed, final int dxUnconsumed, final int dyUnconsumed, int type) {
         // Dispatch up to the nested parent first
-        dispatchNestedScroll(dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed, mParentOffsetInWindow);
+        dispatchNestedScroll(dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed, mParentOffsetInWindow, type);
+        mCanChildScrollUpValid = false;
+        if (dyConsumed > 0 || dyUnconsumed > 0) {
+            scheduleLoadMoreCheck();
+        }
 
         // This is a bit of a hack. Nested scrolling works from the bottom up, and as we are
         // sometimes between two nested scrolling views, we need a way to be able to know when any
@@ -758,12 +1570,40 @@ public class RefreshNestedLayout extends FrameLayout implements NestedScrollingP
         // 'offset in window 'functionality to see if we have been moved from the event.
         // This is a decent indication of whether we should take over the event stream or not.
         final int dy = dyUnconsumed + mParentOffsetInWindow[1];
-        if (!canChildScrollUp()) {
-            mTotalUnconsumed += dy;
-            moveHeader(mTotalUnconsumed * DRAG_RATE);
+        if (type != ViewCompat.TYPE_TOUCH) {
+            if (dy < 0 && !canChildScrollUpCached()) {
+                // the child's whole step of this frame gives the current fling velocity, the unconsumed part
+                // alone is only what overshot the top
+                float velocity = -(dyConsumed + dy) * 1000000000f / mEngine.getFrameClock().getFrameIntervalNanos();
+                if (mEngine.onFlingReachedTop(velocity)) {
+                    // the momentum belongs to the header now, stop the child's nested scroll and its scroller
+                    ViewCompat.stopNestedScroll(target, ViewCompat.TYPE_NON_TOUCH);
+                    stopChildFling(target);
+                }
+            }
+            return;
         }
+        mEngine.onNestedScroll(dy);
+    }
+
+    private void stopChildFling(View target) {
+        mFlingTarget = target;
+        mEngine.getFrameClock().postFrameCallback(mStopChildFlingCallback);
     }
 
+    // stopped on the next frame, the child is still in the middle of its fling step when it reports the scroll
+    private final FrameClock.FrameCallback mStopChildFlingCallback = new FrameClock.FrameCallback() {
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            final View target = mFlingTarget;
+            mFlingTarget = null;
+            if (target != null) {
+                ChildScrollStrategies.stopFling(target);
+            }
+        }
+    };
+
     // NestedScrollingChild
 
     @Override
@@ -801,8 +1641,37 @@ public class RefreshNestedLayout extends FrameLayout implements NestedScrollingP
         return mNestedScrollingChildHelper.dispatchNestedPreScroll(dx, dy, consumed, offsetInWindow);
     }
 
+    // NestedScrollingChild2
+
+    @Override
+    public boolean startNestedScroll(int axes, int type) {
+        return mNestedScrollingChildHelper.startNestedScroll(axes, type);
+    }
+
+    @Override
+    public void stopNestedScroll(int type) {
+        mNestedScrollingChildHelper.stopNestedScroll(type);
+    }
+
+    @Override
+    public boolean hasNestedScrollingParent(int type) {
+        return mNestedScrollingChildHelper.hasNestedScrollingParent(type);
+    }
+
+    @Override
+    public boolean dispatchNestedScroll(int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed, @Nullable int[] offsetInWindow, int type) {
+        return mNestedScrollingChildHelper.dispatchNestedScroll(dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed, offsetInWindow, type);
+    }
+
+    @Override
+    public boolean dispatchNestedPreScroll(int dx, int dy, @Nullable int[] consumed, @Nullable int[] offsetInWindow, int type) {
+        return mNestedScrollingChildHelper.dispatchNestedPreScroll(dx, dy, consumed, offsetInWindow, type);
+    }
+
     @Override
     public boolean onNestedPreFling(View target, float velocityX, float velocityY) {
+        // the child's own estimate, the header is told before the nested scroll stops
+        mEngine.setReleaseVelocity(-velocityY);
         return dispatchNestedPreFling(velocityX, velocityY);
     }
 
@@ -0,0 +1,94 @@
+package com.eastwood.common.view;
+
+import android.os.SystemClock;
+
+/**
+ * Decides whether a refresh of a {@link RefreshNestedLayout} actually needs to reach the refresh listener, see
+ * {@link RefreshNestedLayout#setRefreshPolicy(RefreshPolicy)}. All times are {@link SystemClock#elapsedRealtime()}
+ * based milliseconds.
+ * <p>
+ * A pull that is not needed still shows the refresh animation and completes right away, a not needed
+ * {@link RefreshNestedLayout#onAutoRefresh()} is dropped without showing the header.
+ */
+public final class RefreshPolicy {
+
+    static final int DECISION_REFRESH = 0;
+    static final int DECISION_SOFT_REFRESH = 1;
+    static final int DECISION_SKIP = 2;
+
+    private long mMinIntervalMillis;
+    private long mAutoRefreshDebounceMillis;
+    private long mFreshForMillis;
+    private boolean mSoftRefreshWhenFresh;
+
+    private long mLastRefreshMillis = -1;
+    private long mDataTimestampMillis = -1;
+
+    /**
+     * Skip refreshes that start less than this long after the previous one started.
+     */
+    public RefreshPolicy setMinInterval(long millis) {
+        mMinIntervalMillis = millis;
+        return this;
+    }
+
+    /**
+     * Wait this long after {@link RefreshNestedLayout#onAutoRefresh()} before refreshing, further calls in the
+     * meantime restart the wait, so bursts of auto refreshes, e.g. on every resume, end up as one.
+     */
+    public RefreshPolicy setAutoRefreshDebounce(long millis) {
+        mAutoRefreshDebounceMillis = millis;
+        return this;
+    }
+
+    /**
+     * Data younger than this is fresh, see {@link #setDataTimestamp(long)}.
+     */
+    public RefreshPolicy setFreshFor(long millis) {
+        mFreshForMillis = millis;
+        return this;
+    }
+
+    /**
+     * Whether a pull on fresh data still calls the refresh listener, marked as a soft refresh, instead of
+     * skipping it. Off by default.
+     */
+    public RefreshPolicy setSoftRefreshWhenFresh(boolean softRefresh) {
+        mSoftRefreshWhenFresh = softRefresh;
+        return this;
+    }
+
+    /**
+     * Tell the policy when the shown data was loaded, e.g. from a cache. Completed refreshes set it automatically.
+     */
+    public void setDataTimestamp(long elapsedRealtimeMillis) {
+        mDataTimestampMillis = elapsedRealtimeMillis;
+    }
+
+    public void setDataAge(long ageMillis) {
+        mDataTimestampMillis = SystemClock.elapsedRealtime() - ageMillis;
+    }
+
+    long getAutoRefreshDebounce() {
+        return mAutoRefreshDebounceMillis;
+    }
+
+    int decide(long nowMillis) {
+        if (mLastRefreshMillis >= 0 && nowMillis - mLastRefreshMillis < mMinIntervalMillis) {
+            return DECISION_SKIP;
+        }
+        if (mDataTimestampMillis >= 0 && nowMillis - mDataTimestampMillis < mFreshForMillis) {
+            return mSoftRefreshWhenFresh ? DECISION_SOFT_REFRESH : DECISION_SKIP;
+        }
+        return DECISION_REFRESH;
+    }
+
+    void onRefreshStarted(long nowMillis) {
+        mLastRefreshMillis = nowMillis;
+    }
+
+    void onRefreshCompleted(long nowMillis) {
+        mDataTimestampMillis = nowMillis;
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.eastwood.common.view;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One refresh in flight, handed to {@link RefreshNestedLayout.OnAsyncRefreshListener}. Call {@link #complete()}
+ * from any thread once the data is loaded, the header is collapsed on the UI thread.
+ * <p>
+ * Completing a request that was cancelled or timed out, or completing it twice, does nothing.
+ */
+public final class RefreshRequest {
+
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+
+    private final RefreshNestedLayout mLayout;
+    private final boolean mSoft;
+    private final AtomicBoolean mDone = new AtomicBoolean();
+    private volatile boolean mCancelled;
+    private volatile RefreshTask mTask;
+
+    private final Runnable mCompleteRunnable = new Runnable() {
+
+        @Override
+        public void run() {
+            mLayout.onRefreshRequestComplete(RefreshRequest.this);
+        }
+    };
+
+    RefreshRequest(RefreshNestedLayout layout, boolean soft) {
+        mLayout = layout;
+        mSoft = soft;
+    }
+
+    public void complete() {
+        if (mDone.compareAndSet(false, true)) {
+            sMainHandler.post(mCompleteRunnable);
+        }
+    }
+
+    /**
+     * @return true if the refresh was cancelled or timed out, work still running for it can stop early.
+     */
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * @return true if the data was still fresh when the refresh started, see
+     * {@link RefreshPolicy#setSoftRefreshWhenFresh(boolean)}.
+     */
+    public boolean isSoft() {
+        return mSoft;
+    }
+
+    void setTask(@Nullable RefreshTask task) {
+        mTask = task;
+        if (mCancelled && task != null) {
+            // cancelled while the listener was still starting the work
+            task.cancel();
+        }
+    }
+
+    void cancel() {
+        mCancelled = true;
+        mDone.set(true);
+        sMainHandler.removeCallbacks(mCompleteRunnable);
+        RefreshTask task = mTask;
+        if (task != null) {
+            task.cancel();
+        }
+    }
+
+}
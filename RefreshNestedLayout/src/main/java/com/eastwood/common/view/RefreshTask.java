@@ -0,0 +1,14 @@
+package com.eastwood.common.view;
+
+/**
+ * Handle to the work started for a refresh, returned from
+ * {@link RefreshNestedLayout.OnAsyncRefreshListener#onRefresh(RefreshRequest)}.
+ */
+public interface RefreshTask {
+
+    /**
+     * Stop the work, the result is no longer needed. May be called from any thread and more than once.
+     */
+    void cancel();
+
+}
@@ -0,0 +1,47 @@
+package com.eastwood.common.view;
+
+import android.os.Build;
+import android.os.Trace;
+import android.support.v4.os.TraceCompat;
+
+import com.eastwood.common.view.core.Tracer;
+
+/**
+ * {@link Tracer} writing systrace / Perfetto sections. Async sections need {@link Trace#beginAsyncSection}, public
+ * since Q, and are dropped on older versions rather than reached through the hidden methods by reflection, which
+ * boxes the arguments and allocates on every call.
+ */
+final class SystraceTracer implements Tracer {
+
+    static final SystraceTracer INSTANCE = new SystraceTracer();
+
+    private static final boolean ASYNC_SECTIONS_AVAILABLE = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q;
+
+    private SystraceTracer() {
+    }
+
+    @Override
+    public void beginSection(String name) {
+        TraceCompat.beginSection(name);
+    }
+
+    @Override
+    public void endSection() {
+        TraceCompat.endSection();
+    }
+
+    @Override
+    public void beginAsyncSection(String name, int cookie) {
+        if (ASYNC_SECTIONS_AVAILABLE) {
+            Trace.beginAsyncSection(name, cookie);
+        }
+    }
+
+    @Override
+    public void endAsyncSection(String name, int cookie) {
+        if (ASYNC_SECTIONS_AVAILABLE) {
+            Trace.endAsyncSection(name, cookie);
+        }
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.eastwood.common.view.benchmark;
+
+import com.eastwood.common.view.core.FrameClock;
+import com.eastwood.common.view.core.HeadlessCallback;
+import com.eastwood.common.view.core.RefreshEngine;
+
+/**
+ * Engine configured like the default RefreshNestedLayout on a xxhdpi (3x) display.
+ */
+final class EngineFactory {
+
+    private static final float DENSITY = 3f;
+
+    private EngineFactory() {
+    }
+
+    static RefreshEngine create(HeadlessCallback callback, FrameClock frameClock) {
+        RefreshEngine engine = callback.createEngine(frameClock);
+        engine.setPullMaxDistance((int) (106 * DENSITY));
+        engine.setRefreshingDistance((int) (42 * DENSITY));
+        engine.setTouchSlop((int) (8 * DENSITY));
+        engine.setFlingOverscrollDeceleration(20000 * DENSITY);
+        engine.setMinFlingVelocity(50 * DENSITY);
+        return engine;
+    }
+
+}
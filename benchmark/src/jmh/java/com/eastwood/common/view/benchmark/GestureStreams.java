@@ -0,0 +1,96 @@
+package com.eastwood.common.view.benchmark;
+
+import com.eastwood.common.view.core.MutableTouchEvent;
+import com.eastwood.common.view.core.TouchEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Synthetic event streams, sampled like a finger moving at a steady speed on a 120 Hz touch panel. Built ahead of
+ * the measurement, so replaying them does not allocate.
+ */
+final class GestureStreams {
+
+    static final int MOVE_EVENTS = 60;
+    static final float MOVE_STEP = 10f;
+
+    // event counts of each stream, for @OperationsPerInvocation
+    static final int SINGLE_POINTER_PULL_EVENTS = MOVE_EVENTS + 2;
+    static final int MULTI_POINTER_PULL_EVENTS = MOVE_EVENTS / 3 * 3 + 4;
+    static final int DRAG_WHILE_REFRESHING_EVENTS = MOVE_EVENTS / 2 * 2 + 2;
+
+    private GestureStreams() {
+    }
+
+    private static MutableTouchEvent single(int action, float y) {
+        return new MutableTouchEvent().set(action, y);
+    }
+
+    private static MutableTouchEvent pair(int action, int actionIndex, float y0, float y1) {
+        return new MutableTouchEvent().set(action, actionIndex, 2).setPointer(0, 0, y0).setPointer(1, 1, y1);
+    }
+
+    /**
+     * One finger pulling down past the refresh threshold and releasing.
+     */
+    static MutableTouchEvent[] singlePointerPull() {
+        List<MutableTouchEvent> events = new ArrayList<>();
+        float y = 100;
+        events.add(single(TouchEvent.ACTION_DOWN, y));
+        for (int i = 0; i < MOVE_EVENTS; i++) {
+            y += MOVE_STEP;
+            events.add(single(TouchEvent.ACTION_MOVE, y));
+        }
+        events.add(single(TouchEvent.ACTION_UP, y));
+        return events.toArray(new MutableTouchEvent[events.size()]);
+    }
+
+    /**
+     * A pull that hands over to a second finger and back again before releasing.
+     */
+    static MutableTouchEvent[] multiPointerPull() {
+        List<MutableTouchEvent> events = new ArrayList<>();
+        float y0 = 100;
+        float y1 = 300;
+        int third = MOVE_EVENTS / 3;
+        events.add(single(TouchEvent.ACTION_DOWN, y0));
+        for (int i = 0; i < third; i++) {
+            y0 += MOVE_STEP;
+            events.add(single(TouchEvent.ACTION_MOVE, y0));
+        }
+        events.add(pair(TouchEvent.ACTION_POINTER_DOWN, 1, y0, y1));
+        for (int i = 0; i < third; i++) {
+            y1 += MOVE_STEP;
+            events.add(pair(TouchEvent.ACTION_MOVE, 0, y0, y1));
+        }
+        events.add(pair(TouchEvent.ACTION_POINTER_UP, 1, y0, y1));
+        for (int i = 0; i < third; i++) {
+            y0 += MOVE_STEP;
+            events.add(single(TouchEvent.ACTION_MOVE, y0));
+        }
+        events.add(single(TouchEvent.ACTION_UP, y0));
+        return events.toArray(new MutableTouchEvent[events.size()]);
+    }
+
+    /**
+     * A drag on the header while it is refreshing: up towards the list first, then back down past the threshold.
+     */
+    static MutableTouchEvent[] dragWhileRefreshing() {
+        List<MutableTouchEvent> events = new ArrayList<>();
+        float y = 400;
+        int half = MOVE_EVENTS / 2;
+        events.add(single(TouchEvent.ACTION_DOWN, y));
+        for (int i = 0; i < half; i++) {
+            y -= MOVE_STEP / 2;
+            events.add(single(TouchEvent.ACTION_MOVE, y));
+        }
+        for (int i = 0; i < half; i++) {
+            y += MOVE_STEP * 2;
+            events.add(single(TouchEvent.ACTION_MOVE, y));
+        }
+        events.add(single(TouchEvent.ACTION_UP, y));
+        return events.toArray(new MutableTouchEvent[events.size()]);
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.eastwood.common.view.benchmark;
+
+import com.eastwood.common.view.core.HeadlessCallback;
+import com.eastwood.common.view.core.ManualFrameClock;
+import com.eastwood.common.view.core.RefreshEngine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * A nested scrolling child at its top edge pulling the header out through unconsumed scroll,
+ * scrolling part of it back with pre-scroll and stopping. Scores are per nested scroll callback.
+ */
+@State(Scope.Thread)
+public class NestedScrollBenchmark {
+
+    private static final int PULL_STEPS = 40;
+    private static final int PUSH_STEPS = 10;
+    private static final int STEP = 8;
+
+    private final int[] mConsumed = new int[1];
+
+    private ManualFrameClock mFrameClock;
+    private RefreshEngine mEngine;
+
+    @Setup
+    public void setUp() {
+        mFrameClock = new ManualFrameClock(120f);
+        HeadlessCallback callback = new HeadlessCallback();
+        callback.setRefreshDuration(0);
+        mEngine = EngineFactory.create(callback, mFrameClock);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PULL_STEPS + PUSH_STEPS + 2)
+    public void nestedScrollFromChild(Blackhole blackhole) {
+        mEngine.onNestedScrollAccepted();
+        for (int i = 0; i < PULL_STEPS; i++) {
+            mEngine.onNestedScroll(-STEP);
+        }
+        for (int i = 0; i < PUSH_STEPS; i++) {
+            mConsumed[0] += mEngine.onNestedPreScroll(STEP);
+        }
+        mEngine.onStopNestedScroll();
+        mFrameClock.advanceUntilIdle(1000);
+        blackhole.consume(mConsumed[0]);
+    }
+
+}
@@ -0,0 +1,227 @@
+package com.eastwood.common.view.benchmark;
+
+import com.eastwood.common.view.core.AllocationProbe;
+import com.eastwood.common.view.core.HeadlessCallback;
+import com.eastwood.common.view.core.ManualFrameClock;
+import com.eastwood.common.view.core.MutableTouchEvent;
+import com.eastwood.common.view.core.RefreshEngine;
+import com.eastwood.common.view.core.RefreshState;
+import com.eastwood.common.view.core.TouchEvent;
+
+/**
+ * Headless stress scenarios on a {@link ManualFrameClock}, printing frames per gesture, layout passes, header
+ * moves, refreshes, illegal state transitions and allocations. Layout passes are estimated like
+ * {@code ReplayReport.getMovingFrameCount()}: the frames that moved the header, each of which is a layout pass in
+ * the resize header offset mode. Layouts of the child or the header itself are only seen on a device. Everything runs on simulated time, so the numbers only change when
+ * the engine does and can be compared between versions. Children are modelled by what they answer to
+ * {@code canChildScrollUp()} only: no adapter, child scroll strategy or load more code runs here. Those are covered
+ * by the demo's stress activities with 100k item adapters, on a device.
+ * <p>
+ * {@code ./gradlew :benchmark:stressScenarios}
+ */
+public final class StressScenarios {
+
+    private static final float FRAME_RATE = 60f;
+    // touch panels sample at 120 Hz, twice per frame
+    private static final long TOUCH_INTERVAL_NANOS = 1000000000L / 120;
+    private static final int MAX_SETTLE_FRAMES = 1000;
+
+    private static final int APP_BAR_RANGE = 150 * 3;
+
+    private final String mName;
+    private final ManualFrameClock mClock = new ManualFrameClock(FRAME_RATE);
+    private final RefreshEngine mEngine;
+    private final MutableTouchEvent mEvent = new MutableTouchEvent();
+
+    // refreshes complete as soon as the header is dragged while refreshing, instead of after a fixed time
+    private boolean mCompleteOnDrag;
+
+    private final HeadlessCallback mCallback = new HeadlessCallback() {
+
+        @Override
+        public void onStateChanged(RefreshState oldState, RefreshState newState) {
+            super.onStateChanged(oldState, newState);
+            if (mCompleteOnDrag && oldState == RefreshState.REFRESHING && newState == RefreshState.MANUAL_SCROLLING) {
+                // the data arrives while the user still holds the header
+                mEngine.refreshComplete();
+            }
+        }
+    };
+
+    private long mTimeNanos;
+    private boolean mIntercepted;
+    private int mGestures;
+    private int mMovingFrames;
+    private int mLastFrameOffset;
+
+    private StressScenarios(String name) {
+        mName = name;
+        mEngine = EngineFactory.create(mCallback, mClock);
+    }
+
+    public static void main(String[] args) {
+        System.out.println("scenario                          gestures  frames/gesture  layout passes  offset changes  refreshes  illegal  allocated");
+        run(new Scenario("child drags, then a pull") {
+
+            @Override
+            void play(StressScenarios s) {
+                // 60 drags the child keeps because it can scroll up, the engine must stay out of all of them
+                s.mCallback.setChildCanScrollUp(true);
+                for (int i = 0; i < 60; i++) {
+                    s.drag(100, 1500, 40, 0);
+                }
+                s.mCallback.setChildCanScrollUp(false);
+                s.drag(100, 800, 40, 0);
+                s.settle();
+            }
+        });
+        run(new Scenario("repeated pulls, slow and flicked") {
+
+            @Override
+            void play(StressScenarios s) {
+                for (int i = 0; i < 25; i++) {
+                    s.drag(100, 800, 40, 0);
+                    s.settle();
+                    // pulls just short of and just past the threshold, let go with a flick that decides them
+                    s.drag(100, 580, 6, 5000);
+                    s.settle();
+                    s.drag(100, 650, 20, -3000);
+                    s.settle();
+                }
+            }
+        });
+        run(new Scenario("app bar nesting") {
+
+            @Override
+            void play(StressScenarios s) {
+                for (int i = 0; i < 10; i++) {
+                    s.nestedPull(APP_BAR_RANGE, 1200, 60);
+                    s.settle();
+                }
+            }
+        });
+        run(new Scenario("refresh completes mid-drag") {
+
+            @Override
+            void play(StressScenarios s) {
+                s.mCompleteOnDrag = true;
+                s.mCallback.setRefreshDuration(-1);
+                for (int i = 0; i < 10; i++) {
+                    s.drag(100, 800, 40, 0);
+                    s.advance(200);
+                    // grab the refreshing header, the refresh completes under the finger
+                    s.drag(400, 300, 20, 0);
+                    s.settle();
+                }
+            }
+        });
+    }
+
+    private static void run(Scenario scenario) {
+        // the first run loads and compiles the code paths, only the second one is reported
+        scenario.play(new StressScenarios(scenario.mName));
+        StressScenarios s = new StressScenarios(scenario.mName);
+        long allocatedBefore = AllocationProbe.currentThreadAllocatedBytes();
+        scenario.play(s);
+        long allocatedAfter = AllocationProbe.currentThreadAllocatedBytes();
+        s.report(allocatedBefore >= 0 ? allocatedAfter - allocatedBefore : -1);
+    }
+
+    private abstract static class Scenario {
+
+        final String mName;
+
+        Scenario(String name) {
+            mName = name;
+        }
+
+        abstract void play(StressScenarios s);
+    }
+
+    // Gestures
+
+    /**
+     * A single finger moving from {@code fromY} to {@code toY} in {@code moves} steps.
+     *
+     * @param releaseVelocity finger velocity reported at the release in px/s, like a VelocityTracker would.
+     */
+    private void drag(float fromY, float toY, int moves, float releaseVelocity) {
+        mGestures++;
+        mIntercepted = false;
+        touch(TouchEvent.ACTION_DOWN, fromY);
+        for (int i = 1; i <= moves; i++) {
+            touch(TouchEvent.ACTION_MOVE, fromY + (toY - fromY) * i / moves);
+        }
+        mEngine.setReleaseVelocity(releaseVelocity);
+        touch(TouchEvent.ACTION_UP, toY);
+    }
+
+    /**
+     * A nested scrolling child at its top pulled down by {@code distance}, of which an app bar above it takes
+     * {@code appBarRange} first.
+     */
+    private void nestedPull(int appBarRange, int distance, int steps) {
+        mGestures++;
+        mEngine.onNestedScrollAccepted();
+        int appBarLeft = appBarRange;
+        int step = distance / steps;
+        for (int i = 0; i < steps; i++) {
+            advanceTo(mTimeNanos + TOUCH_INTERVAL_NANOS);
+            int dy = -step;
+            int consumedByAppBar = Math.max(dy, -appBarLeft);
+            appBarLeft += consumedByAppBar;
+            int unconsumed = dy - consumedByAppBar;
+            if (unconsumed != 0) {
+                mEngine.onNestedScroll(unconsumed);
+            }
+        }
+        mEngine.onStopNestedScroll();
+    }
+
+    private void touch(int action, float y) {
+        advanceTo(mTimeNanos + TOUCH_INTERVAL_NANOS);
+        mEvent.set(action, y);
+        // like a ViewGroup: intercept until the engine takes the stream, then deliver to it directly
+        if (!mIntercepted) {
+            mIntercepted = mEngine.onInterceptTouchEvent(mEvent);
+        } else {
+            mEngine.onTouchEvent(mEvent);
+        }
+    }
+
+    // Time
+
+    private void advance(long millis) {
+        advanceTo(mTimeNanos + millis * 1000000L);
+    }
+
+    private void advanceTo(long timeNanos) {
+        mTimeNanos = timeNanos;
+        while (mClock.getFrameTimeNanos() + mClock.getFrameIntervalNanos() <= mTimeNanos) {
+            frame();
+        }
+    }
+
+    private void settle() {
+        for (int frames = 0; mClock.hasPendingCallbacks() && frames < MAX_SETTLE_FRAMES; frames++) {
+            frame();
+        }
+        mTimeNanos = Math.max(mTimeNanos, mClock.getFrameTimeNanos());
+    }
+
+    private void frame() {
+        mClock.advanceFrame();
+        int offset = mEngine.getHeaderOffset();
+        if (offset != mLastFrameOffset) {
+            mMovingFrames++;
+            mLastFrameOffset = offset;
+        }
+    }
+
+    private void report(long allocatedBytes) {
+        System.out.println(String.format("%-33s %8d %15.1f %14d %15d %10d %8d %10s",
+                mName, mGestures, mClock.getFrameCount() / (float) mGestures, mMovingFrames,
+                mCallback.getHeaderOffsetChanges(), mCallback.getRefreshCount(), mEngine.getIllegalTransitionCount(), allocatedBytes < 0 ? "n/a" : allocatedBytes + " B"));
+    }
+
+}
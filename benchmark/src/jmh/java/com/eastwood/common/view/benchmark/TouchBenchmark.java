@@ -0,0 +1,94 @@
+package com.eastwood.common.view.benchmark;
+
+import com.eastwood.common.view.core.HeadlessCallback;
+import com.eastwood.common.view.core.ManualFrameClock;
+import com.eastwood.common.view.core.MutableTouchEvent;
+import com.eastwood.common.view.core.RefreshEngine;
+import com.eastwood.common.view.core.RefreshState;
+import com.eastwood.common.view.core.TouchEvent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Touch streams dispatched the way a ViewGroup does: onInterceptTouchEvent until it intercepts,
+ * onTouchEvent afterwards. Scores are per input event; the settle animation after each release is
+ * drained on a {@link ManualFrameClock} and included in the cost of the release.
+ */
+@State(Scope.Thread)
+public class TouchBenchmark {
+
+    private static final int MAX_SETTLE_FRAMES = 1000;
+
+    private MutableTouchEvent[] mSinglePointerPull;
+    private MutableTouchEvent[] mMultiPointerPull;
+    private MutableTouchEvent[] mDragWhileRefreshing;
+
+    private ManualFrameClock mFrameClock;
+    private HeadlessCallback mCallback;
+    private RefreshEngine mEngine;
+
+    @Setup
+    public void setUp() {
+        mSinglePointerPull = GestureStreams.singlePointerPull();
+        mMultiPointerPull = GestureStreams.multiPointerPull();
+        mDragWhileRefreshing = GestureStreams.dragWhileRefreshing();
+
+        mFrameClock = new ManualFrameClock(120f);
+        mCallback = new HeadlessCallback();
+        mEngine = EngineFactory.create(mCallback, mFrameClock);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(GestureStreams.SINGLE_POINTER_PULL_EVENTS)
+    public void singlePointerPull(Blackhole blackhole) {
+        mCallback.setRefreshDuration(0);
+        blackhole.consume(dispatch(mSinglePointerPull));
+        mFrameClock.advanceUntilIdle(MAX_SETTLE_FRAMES);
+        blackhole.consume(mCallback.getHeaderOffsetChanges());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(GestureStreams.MULTI_POINTER_PULL_EVENTS)
+    public void multiPointerPull(Blackhole blackhole) {
+        mCallback.setRefreshDuration(0);
+        blackhole.consume(dispatch(mMultiPointerPull));
+        mFrameClock.advanceUntilIdle(MAX_SETTLE_FRAMES);
+        blackhole.consume(mCallback.getHeaderOffsetChanges());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(GestureStreams.DRAG_WHILE_REFRESHING_EVENTS)
+    public void dragWhileRefreshing(Blackhole blackhole) {
+        mCallback.setRefreshDuration(-1);
+        if (mEngine.getState() != RefreshState.REFRESHING) {
+            mEngine.autoRefresh();
+            mFrameClock.advanceUntilIdle(MAX_SETTLE_FRAMES);
+        }
+        // the release is past the threshold, so the header settles back into REFRESHING
+        blackhole.consume(dispatch(mDragWhileRefreshing));
+        mFrameClock.advanceUntilIdle(MAX_SETTLE_FRAMES);
+        blackhole.consume(mCallback.getHeaderOffsetChanges());
+    }
+
+    private boolean dispatch(MutableTouchEvent[] events) {
+        boolean intercepted = false;
+        boolean handled = false;
+        for (MutableTouchEvent event : events) {
+            if (event.getActionMasked() == TouchEvent.ACTION_DOWN) {
+                intercepted = false;
+            }
+            if (intercepted) {
+                handled |= mEngine.onTouchEvent(event);
+            } else {
+                intercepted = mEngine.onInterceptTouchEvent(event);
+            }
+        }
+        return handled;
+    }
+
+}
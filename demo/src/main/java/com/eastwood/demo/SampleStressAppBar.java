@@ -0,0 +1,24 @@
+package com.eastwood.demo;
+
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.Toolbar;
+
+public class SampleStressAppBar extends StressActivity {
+
+    @Override
+    protected int getLayoutId() {
+        return R.layout.sample_stress_app_bar;
+    }
+
+    @Override
+    protected void onBindContent() {
+        Toolbar toolbar = findViewById(R.id.toolbar);
+        toolbar.setTitle("Stress");
+
+        RecyclerView recyclerView = findViewById(R.id.recycler_view);
+        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        recyclerView.setAdapter(new StressRecyclerAdapter());
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.eastwood.demo;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.ListView;
+
+public class SampleStressListView extends StressActivity {
+
+    @Override
+    protected int getLayoutId() {
+        return R.layout.sample_stress_list_view;
+    }
+
+    @Override
+    protected void onBindContent() {
+        ListView listView = findViewById(R.id.list_view);
+        listView.setAdapter(new BaseAdapter() {
+
+            @Override
+            public int getCount() {
+                return ITEM_COUNT;
+            }
+
+            @Override
+            public Object getItem(int position) {
+                return getItemTitle(position);
+            }
+
+            @Override
+            public long getItemId(int position) {
+                return position;
+            }
+
+            @Override
+            public View getView(int position, View convertView, ViewGroup parent) {
+                if (convertView == null) {
+                    convertView = LayoutInflater.from(parent.getContext()).inflate(R.layout.stress_list_item, parent, false);
+                    convertView.setTag(new StressItemBinder(convertView));
+                }
+                ((StressItemBinder) convertView.getTag()).bind(position);
+                return convertView;
+            }
+        });
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.eastwood.demo;
+
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+
+public class SampleStressRecyclerView extends StressActivity {
+
+    @Override
+    protected int getLayoutId() {
+        return R.layout.sample_stress_recycler_view;
+    }
+
+    @Override
+    protected void onBindContent() {
+        RecyclerView recyclerView = findViewById(R.id.recycler_view);
+        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        recyclerView.setAdapter(new StressRecyclerAdapter());
+    }
+
+}
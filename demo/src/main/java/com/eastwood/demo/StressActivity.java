@@ -0,0 +1,112 @@
+package com.eastwood.demo;
+
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.support.v7.app.AppCompatActivity;
+import android.widget.TextView;
+
+import com.eastwood.common.view.RefreshMetrics;
+import com.eastwood.common.view.RefreshLatencies;
+import com.eastwood.common.view.RefreshNestedLayout;
+import com.eastwood.common.view.core.RefreshState;
+
+/**
+ * Base of the stress samples: 100k heavy items, refreshes that complete after two seconds or as soon as the
+ * refreshing header is grabbed, and an overlay with the frames, layout passes and latencies of every gesture.
+ */
+public abstract class StressActivity extends AppCompatActivity {
+
+    static final int ITEM_COUNT = 100000;
+    private static final long REFRESH_DURATION = 2000;
+
+    private RefreshNestedLayout mRefresher;
+    private TextView mReportView;
+    private RefreshLatencies mLatencies;
+
+    private int mGestures;
+    private int mFrames;
+    private int mFramesOverBudget;
+    private int mLayouts;
+    private long mBodyScrollNanos;
+    private long mHeaderCallbackNanos;
+
+    private final Runnable mCompleteRefresh = new Runnable() {
+        @Override
+        public void run() {
+            mRefresher.onRefreshComplete();
+        }
+    };
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(getLayoutId());
+        mReportView = findViewById(R.id.stress_report);
+        mRefresher = findViewById(R.id.refresh_layout);
+        mRefresher.setOnRefreshListener(new RefreshNestedLayout.OnRefreshListener() {
+
+            @Override
+            public void onRefresh() {
+                mRefresher.postDelayed(mCompleteRefresh, REFRESH_DURATION);
+            }
+        });
+        mRefresher.setOnStateChangeListener(new RefreshNestedLayout.OnStateChangeListener() {
+
+            @Override
+            public void onStateChanged(@NonNull RefreshState oldState, @NonNull RefreshState newState) {
+                if (oldState == RefreshState.REFRESHING && newState == RefreshState.MANUAL_SCROLLING) {
+                    // the data arrives while the user still holds the header
+                    mRefresher.removeCallbacks(mCompleteRefresh);
+                    mRefresher.onRefreshComplete();
+                }
+            }
+        });
+        mRefresher.setOnRefreshMetricsListener(new RefreshNestedLayout.OnRefreshMetricsListener() {
+
+            @Override
+            public void onRefreshMetrics(RefreshMetrics metrics) {
+                if (metrics.getType() == RefreshMetrics.TYPE_DRAG) {
+                    mGestures++;
+                }
+                mFrames += metrics.getFrames();
+                mFramesOverBudget += metrics.getFramesOverBudget();
+                mLayouts += metrics.getLayoutCount();
+                mBodyScrollNanos += metrics.getBodyScrollNanos();
+                mHeaderCallbackNanos += metrics.getHeaderCallbackNanos();
+                updateReport();
+            }
+        });
+        mLatencies = new RefreshLatencies();
+        mRefresher.setRefreshLatencies(mLatencies);
+
+        onBindContent();
+        updateReport();
+    }
+
+    @Override
+    protected void onDestroy() {
+        mRefresher.removeCallbacks(mCompleteRefresh);
+        super.onDestroy();
+    }
+
+    protected abstract int getLayoutId();
+
+    protected abstract void onBindContent();
+
+    static String getItemTitle(int position) {
+        return "Item " + position;
+    }
+
+    private void updateReport() {
+        mReportView.setText("gestures " + mGestures
+                + "  frames/gesture " + (mGestures == 0 ? 0 : mFrames / mGestures)
+                + "  over budget " + mFramesOverBudget
+                + "\nlayout passes " + mLayouts
+                + "  body scroll " + mBodyScrollNanos / 1000 + "us"
+                + "  header callbacks " + mHeaderCallbackNanos / 1000 + "us"
+                + "  illegal transitions " + mRefresher.getIllegalTransitionCount()
+                + "\npull to begin p90 " + mLatencies.getPullToBegin().getValueAtPercentile(90) + "ms"
+                + "  complete to idle p90 " + mLatencies.getCompleteToIdle().getValueAtPercentile(90) + "ms");
+    }
+
+}
@@ -0,0 +1,32 @@
+package com.eastwood.demo;
+
+import android.view.View;
+import android.widget.TextView;
+
+/**
+ * Binds the heavy stress item, shared by the ListView and RecyclerView samples.
+ */
+final class StressItemBinder {
+
+    private static final int[] COLORS = {0xFFA10000, 0xFF222222, 0xFF006064, 0xFF4A148C};
+
+    private final View mAvatar;
+    private final TextView mTitle;
+    private final TextView mSubtitle;
+    private final TextView mBadge;
+
+    StressItemBinder(View itemView) {
+        mAvatar = itemView.findViewById(R.id.stress_avatar);
+        mTitle = itemView.findViewById(R.id.stress_title);
+        mSubtitle = itemView.findViewById(R.id.stress_subtitle);
+        mBadge = itemView.findViewById(R.id.stress_badge);
+    }
+
+    void bind(int position) {
+        mAvatar.setBackgroundColor(COLORS[position % COLORS.length]);
+        mTitle.setText(StressActivity.getItemTitle(position));
+        mSubtitle.setText("of " + StressActivity.ITEM_COUNT + ", row " + position % 1000);
+        mBadge.setText(String.valueOf(position % 100));
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.eastwood.demo;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * {@link StressActivity#ITEM_COUNT} heavy items for the RecyclerView samples.
+ */
+final class StressRecyclerAdapter extends RecyclerView.Adapter<StressRecyclerAdapter.ViewHolder> {
+
+    @Override
+    public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        return new ViewHolder(LayoutInflater.from(parent.getContext()).inflate(R.layout.stress_list_item, parent, false));
+    }
+
+    @Override
+    public void onBindViewHolder(ViewHolder holder, int position) {
+        holder.mBinder.bind(position);
+    }
+
+    @Override
+    public int getItemCount() {
+        return StressActivity.ITEM_COUNT;
+    }
+
+    static final class ViewHolder extends RecyclerView.ViewHolder {
+
+        final StressItemBinder mBinder;
+
+        ViewHolder(View itemView) {
+            super(itemView);
+            mBinder = new StressItemBinder(itemView);
+        }
+    }
+
+}
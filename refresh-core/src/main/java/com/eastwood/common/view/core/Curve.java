@@ -0,0 +1,22 @@
+package com.eastwood.common.view.core;
+
+/**
+ * Maps the elapsed fraction of an animation to the fraction of the distance travelled,
+ * the pure Java counterpart of {@code android.view.animation.Interpolator}.
+ */
+public interface Curve {
+
+    /**
+     * Same as {@code new DecelerateInterpolator()}.
+     */
+    Curve DECELERATE = new Curve() {
+
+        @Override
+        public float getInterpolation(float input) {
+            return 1f - (1f - input) * (1f - input);
+        }
+    };
+
+    float getInterpolation(float input);
+
+}
@@ -0,0 +1,38 @@
+package com.eastwood.common.view.core;
+
+/**
+ * Source of display frames used to drive the header animations.
+ * <p>
+ * On Android the default implementation is backed by {@code Choreographer}, tests can plug in a
+ * {@link ManualFrameClock} to step through an animation frame by frame.
+ */
+public interface FrameClock {
+
+    /**
+     * Post a callback to run on the next frame. Posting a callback that is still pending replaces it, so it only
+     * runs once.
+     */
+    void postFrameCallback(FrameCallback callback);
+
+    /**
+     * Post a callback to run on the first frame after the given delay, replacing it if it is still pending.
+     */
+    void postFrameCallbackDelayed(FrameCallback callback, long delayMillis);
+
+    void removeFrameCallback(FrameCallback callback);
+
+    /**
+     * @return the current duration of one frame on the display, in nanoseconds. It may change while the display
+     * switches its refresh rate, so read it when an animation starts rather than once.
+     */
+    long getFrameIntervalNanos();
+
+    interface FrameCallback {
+
+        /**
+         * @param frameTimeNanos the time at which the frame started rendering, on the {@link System#nanoTime()} time base.
+         */
+        void doFrame(long frameTimeNanos);
+    }
+
+}
@@ -0,0 +1,170 @@
+package com.eastwood.common.view.core;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size histogram of non-negative values, e.g. latencies in milliseconds, with log-linear buckets: exact
+ * below 16, then 16 buckets per power of two, so any value is known to within 1/16 of itself. Recording is a
+ * few shifts and an array increment, no allocation.
+ * <p>
+ * Values above the highest trackable value are counted in the last bucket. Not thread safe, take a
+ * {@link #snapshot()} on the thread that records.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private static final long DEFAULT_HIGHEST_TRACKABLE_VALUE = 1 << 20;
+
+    private final long mHighestTrackableValue;
+    private final int[] mCounts;
+
+    private long mTotalCount;
+    private long mTotal;
+    private long mMin = Long.MAX_VALUE;
+    private long mMax;
+
+    /**
+     * A histogram for values up to about 17 minutes in milliseconds.
+     */
+    public LatencyHistogram() {
+        this(DEFAULT_HIGHEST_TRACKABLE_VALUE);
+    }
+
+    public LatencyHistogram(long highestTrackableValue) {
+        if (highestTrackableValue < SUB_BUCKET_COUNT) {
+            throw new IllegalArgumentException("highestTrackableValue must be at least " + SUB_BUCKET_COUNT);
+        }
+        mHighestTrackableValue = highestTrackableValue;
+        mCounts = new int[bucketIndex(highestTrackableValue) + 1];
+    }
+
+    private LatencyHistogram(LatencyHistogram other) {
+        mHighestTrackableValue = other.mHighestTrackableValue;
+        mCounts = other.mCounts.clone();
+        mTotalCount = other.mTotalCount;
+        mTotal = other.mTotal;
+        mMin = other.mMin;
+        mMax = other.mMax;
+    }
+
+    private static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        // value >>> shift is in [SUB_BUCKET_COUNT, 2 * SUB_BUCKET_COUNT)
+        return (shift + 1) * SUB_BUCKET_COUNT + (int) (value >>> shift) - SUB_BUCKET_COUNT;
+    }
+
+    public void record(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value must not be negative, was " + value);
+        }
+        mCounts[bucketIndex(Math.min(value, mHighestTrackableValue))]++;
+        mTotalCount++;
+        mTotal += value;
+        if (value < mMin) {
+            mMin = value;
+        }
+        if (value > mMax) {
+            mMax = value;
+        }
+    }
+
+    public long getCount() {
+        return mTotalCount;
+    }
+
+    /**
+     * @return the smallest recorded value, or 0 when empty.
+     */
+    public long getMin() {
+        return mTotalCount == 0 ? 0 : mMin;
+    }
+
+    public long getMax() {
+        return mMax;
+    }
+
+    public double getMean() {
+        return mTotalCount == 0 ? 0 : mTotal / (double) mTotalCount;
+    }
+
+    /**
+     * @param percentile between 0 and 100.
+     * @return the highest value of the bucket holding the given percentile, never above {@link #getMax()},
+     * or 0 when empty.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (mTotalCount == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * mTotalCount));
+        long seen = 0;
+        for (int i = 0; i < mCounts.length; i++) {
+            seen += mCounts[i];
+            if (seen >= rank) {
+                // the last bucket also holds the values above the trackable range
+                long upper = i == mCounts.length - 1 ? mMax : getBucketUpperBound(i);
+                return Math.max(getMin(), Math.min(upper, mMax));
+            }
+        }
+        return mMax;
+    }
+
+    /**
+     * @return the number of buckets, for uploading the raw distribution with {@link #getBucketCount(int)}.
+     */
+    public int getBucketCount() {
+        return mCounts.length;
+    }
+
+    public int getBucketCount(int index) {
+        return mCounts[index];
+    }
+
+    public long getBucketLowerBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        return (long) (SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT) << shift;
+    }
+
+    public long getBucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        return ((long) (SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT + 1) << shift) - 1;
+    }
+
+    /**
+     * @return a copy of the current state, unaffected by later records and resets.
+     */
+    public LatencyHistogram snapshot() {
+        return new LatencyHistogram(this);
+    }
+
+    public void reset() {
+        Arrays.fill(mCounts, 0);
+        mTotalCount = 0;
+        mTotal = 0;
+        mMin = Long.MAX_VALUE;
+        mMax = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram{count=" + mTotalCount
+                + ", min=" + getMin()
+                + ", p50=" + getValueAtPercentile(50)
+                + ", p90=" + getValueAtPercentile(90)
+                + ", p99=" + getValueAtPercentile(99)
+                + ", max=" + mMax
+                + '}';
+    }
+
+}
@@ -0,0 +1,142 @@
+package com.eastwood.common.view.core;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A {@link Curve} sampled once into a fixed size table and linearly interpolated at runtime, so costly curves
+ * (Bezier solving, {@code Math.pow}) cost a table lookup per frame. Immutable, one instance can be shared by
+ * any number of engines.
+ */
+public final class LookupTableCurve implements Curve {
+
+    private static final int SAMPLES = 257;
+
+    private static final Map<Curve, LookupTableCurve> sCache = new WeakHashMap<>();
+    // keyed by control points, which nothing else holds on to, so the keys are strong
+    private static final Map<CubicBezier, LookupTableCurve> sBezierCache = new HashMap<>();
+
+    private final float[] mValues = new float[SAMPLES];
+
+    /**
+     * Bake {@code source} into a new table that is not shared, for callers that keep their own cache.
+     * {@link #of(Curve)} shares the table by source instead.
+     */
+    public LookupTableCurve(Curve source) {
+        for (int i = 0; i < SAMPLES; i++) {
+            mValues[i] = source.getInterpolation(i / (float) (SAMPLES - 1));
+        }
+    }
+
+    /**
+     * The baked form of {@code source}, built on the first call and shared afterwards.
+     */
+    public static LookupTableCurve of(Curve source) {
+        if (source instanceof LookupTableCurve) {
+            return (LookupTableCurve) source;
+        }
+        synchronized (sCache) {
+            LookupTableCurve curve = sCache.get(source);
+            if (curve == null) {
+                curve = new LookupTableCurve(source);
+                sCache.put(source, curve);
+            }
+            return curve;
+        }
+    }
+
+    /**
+     * A cubic Bezier from (0, 0) to (1, 1) with the given control points, as CSS {@code cubic-bezier()} and
+     * {@code PathInterpolator} define it. {@code x1} and {@code x2} must be within [0, 1].
+     * The table is built on the first call for these control points and shared afterwards.
+     */
+    public static LookupTableCurve cubicBezier(float x1, float y1, float x2, float y2) {
+        if (x1 < 0 || x1 > 1 || x2 < 0 || x2 > 1) {
+            throw new IllegalArgumentException("x1 and x2 must be within [0, 1]");
+        }
+        final CubicBezier bezier = new CubicBezier(x1, y1, x2, y2);
+        synchronized (sBezierCache) {
+            LookupTableCurve curve = sBezierCache.get(bezier);
+            if (curve == null) {
+                curve = new LookupTableCurve(bezier);
+                sBezierCache.put(bezier, curve);
+            }
+            return curve;
+        }
+    }
+
+    @Override
+    public float getInterpolation(float input) {
+        if (input <= 0f) {
+            return mValues[0];
+        }
+        if (input >= 1f) {
+            return mValues[SAMPLES - 1];
+        }
+        final float position = input * (SAMPLES - 1);
+        final int index = (int) position;
+        final float fraction = position - index;
+        return mValues[index] + (mValues[index + 1] - mValues[index]) * fraction;
+    }
+
+    /**
+     * Solves x(t) = input for t, only run while baking. Equal control points are equal curves.
+     */
+    private static final class CubicBezier implements Curve {
+
+        private final float mX1, mY1, mX2, mY2;
+
+        CubicBezier(float x1, float y1, float x2, float y2) {
+            mX1 = x1;
+            mY1 = y1;
+            mX2 = x2;
+            mY2 = y2;
+        }
+
+        private static float bezier(float t, float p1, float p2) {
+            final float u = 1f - t;
+            return 3 * u * u * t * p1 + 3 * u * t * t * p2 + t * t * t;
+        }
+
+        @Override
+        public float getInterpolation(float input) {
+            // x(t) is monotonic for control points within [0, 1], so bisection always converges
+            float low = 0f;
+            float high = 1f;
+            float t = input;
+            for (int i = 0; i < 32; i++) {
+                float x = bezier(t, mX1, mX2);
+                if (Math.abs(x - input) < 1e-6f) {
+                    break;
+                }
+                if (x < input) {
+                    low = t;
+                } else {
+                    high = t;
+                }
+                t = (low + high) / 2;
+            }
+            return bezier(t, mY1, mY2);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CubicBezier)) {
+                return false;
+            }
+            CubicBezier other = (CubicBezier) o;
+            return Float.compare(mX1, other.mX1) == 0 && Float.compare(mY1, other.mY1) == 0
+                    && Float.compare(mX2, other.mX2) == 0 && Float.compare(mY2, other.mY2) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Float.floatToIntBits(mX1);
+            result = 31 * result + Float.floatToIntBits(mY1);
+            result = 31 * result + Float.floatToIntBits(mX2);
+            return 31 * result + Float.floatToIntBits(mY2);
+        }
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.eastwood.common.view.core;
+
+import java.util.Arrays;
+
+/**
+ * {@link FrameClock} that only produces frames when {@link #advanceFrame()} is called, for tests and replays
+ * that need to count exact frames. Posting and running callbacks does not allocate once the queue has grown.
+ */
+public class ManualFrameClock implements FrameClock {
+
+    private final long mFrameIntervalNanos;
+    private long mFrameTimeNanos;
+    private long mFrameCount;
+
+    private FrameCallback[] mCallbacks = new FrameCallback[4];
+    private long[] mDueTimes = new long[4];
+    private int mSize;
+
+    private FrameCallback[] mRunning = new FrameCallback[4];
+
+    public ManualFrameClock() {
+        this(60f);
+    }
+
+    public ManualFrameClock(float refreshRate) {
+        mFrameIntervalNanos = (long) (1000000000L / refreshRate);
+    }
+
+    @Override
+    public void postFrameCallback(FrameCallback callback) {
+        postFrameCallbackDelayed(callback, 0);
+    }
+
+    @Override
+    public void postFrameCallbackDelayed(FrameCallback callback, long delayMillis) {
+        removeFrameCallback(callback);
+        if (mSize == mCallbacks.length) {
+            mCallbacks = Arrays.copyOf(mCallbacks, mSize * 2);
+            mDueTimes = Arrays.copyOf(mDueTimes, mSize * 2);
+        }
+        mCallbacks[mSize] = callback;
+        mDueTimes[mSize] = mFrameTimeNanos + delayMillis * 1000000L;
+        mSize++;
+    }
+
+    @Override
+    public void removeFrameCallback(FrameCallback callback) {
+        for (int i = 0; i < mSize; i++) {
+            if (mCallbacks[i] == callback) {
+                removeAt(i);
+                return;
+            }
+        }
+    }
+
+    private void removeAt(int index) {
+        mSize--;
+        System.arraycopy(mCallbacks, index + 1, mCallbacks, index, mSize - index);
+        System.arraycopy(mDueTimes, index + 1, mDueTimes, index, mSize - index);
+        mCallbacks[mSize] = null;
+    }
+
+    @Override
+    public long getFrameIntervalNanos() {
+        return mFrameIntervalNanos;
+    }
+
+    /**
+     * Move the clock forward by one frame and run every callback that is due.
+     */
+    public void advanceFrame() {
+        mFrameTimeNanos += mFrameIntervalNanos;
+        mFrameCount++;
+
+        if (mRunning.length < mSize) {
+            mRunning = new FrameCallback[mCallbacks.length];
+        }
+        int running = 0;
+        for (int i = 0; i < mSize; ) {
+            if (mDueTimes[i] <= mFrameTimeNanos) {
+                mRunning[running++] = mCallbacks[i];
+                removeAt(i);
+            } else {
+                i++;
+            }
+        }
+        for (int i = 0; i < running; i++) {
+            FrameCallback callback = mRunning[i];
+            mRunning[i] = null;
+            callback.doFrame(mFrameTimeNanos);
+        }
+    }
+
+    /**
+     * Advance frames until no callback is pending or {@code maxFrames} frames have been produced.
+     *
+     * @return the number of frames produced.
+     */
+    public int advanceUntilIdle(int maxFrames) {
+        int frames = 0;
+        while (mSize > 0 && frames < maxFrames) {
+            advanceFrame();
+            frames++;
+        }
+        return frames;
+    }
+
+    public boolean hasPendingCallbacks() {
+        return mSize > 0;
+    }
+
+    public long getFrameTimeNanos() {
+        return mFrameTimeNanos;
+    }
+
+    public long getFrameCount() {
+        return mFrameCount;
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.eastwood.common.view.core;
+
+import java.util.Arrays;
+
+/**
+ * {@link TouchEvent} whose action and pointers are set by the caller, so one instance can present any number of
+ * events, e.g. when reading a {@link TouchTrace} or driving an engine off device. Setting does not allocate once
+ * the pointer arrays have grown to the largest pointer count seen.
+ */
+public final class MutableTouchEvent implements TouchEvent {
+
+    private int mAction;
+    private int mActionIndex;
+    private int mPointerCount;
+    private int[] mPointerIds = new int[2];
+    private float[] mYs = new float[2];
+
+    /**
+     * Present a single pointer with id 0 at {@code y}.
+     */
+    public MutableTouchEvent set(int action, float y) {
+        set(action, 0, 1);
+        mPointerIds[0] = 0;
+        mYs[0] = y;
+        return this;
+    }
+
+    /**
+     * Present {@code pointerCount} pointers, each set afterwards with {@link #setPointer(int, int, float)}.
+     */
+    public MutableTouchEvent set(int action, int actionIndex, int pointerCount) {
+        if (pointerCount > mPointerIds.length) {
+            mPointerIds = Arrays.copyOf(mPointerIds, pointerCount);
+            mYs = Arrays.copyOf(mYs, pointerCount);
+        }
+        mAction = action;
+        mActionIndex = actionIndex;
+        mPointerCount = pointerCount;
+        return this;
+    }
+
+    public MutableTouchEvent setPointer(int pointerIndex, int pointerId, float y) {
+        mPointerIds[pointerIndex] = pointerId;
+        mYs[pointerIndex] = y;
+        return this;
+    }
+
+    @Override
+    public int getActionMasked() {
+        return mAction;
+    }
+
+    @Override
+    public int getActionIndex() {
+        return mActionIndex;
+    }
+
+    @Override
+    public int getPointerCount() {
+        return mPointerCount;
+    }
+
+    @Override
+    public int getPointerId(int pointerIndex) {
+        return mPointerIds[pointerIndex];
+    }
+
+    @Override
+    public int findPointerIndex(int pointerId) {
+        for (int i = 0; i < mPointerCount; i++) {
+            if (mPointerIds[i] == pointerId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public float getY(int pointerIndex) {
+        return mYs[pointerIndex];
+    }
+
+}
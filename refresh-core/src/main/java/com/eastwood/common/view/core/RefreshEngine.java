@@ -0,0 +1,1037 @@
+package com.eastwood.common.view.core;
+
+/**
+ * Gesture and state machine of a pull-to-refresh layout, free of Android types.
+ * <p>
+ * The view feeds touch and nested scroll input into the engine and applies what comes out of
+ * {@link Callback}: the header offset and the header and refresh listener callbacks.
+ */
+public class RefreshEngine {
+
+    public static final int SMOOTH_SCROLL_DURATION_MS = 250;
+
+    public static final int INVALID_POINTER = -1;
+    public static final float DRAG_RATE = .6125f;
+
+    private static final int AUTO_REFRESH_SCROLL_DURATION_MS = 350;
+    private static final int AUTO_REFRESH_DELAY_MS = 150;
+
+    private static final int MIN_FLING_OVERSCROLL_DURATION_MS = 50;
+    private static final int MIN_SETTLE_DURATION_MS = 50;
+
+    private static final String TRACE_INTERCEPT_TOUCH = "RNL onInterceptTouchEvent";
+    private static final String TRACE_TOUCH = "RNL onTouchEvent";
+    private static final String TRACE_NESTED_PRE_SCROLL = "RNL onNestedPreScroll";
+    private static final String TRACE_NESTED_SCROLL = "RNL onNestedScroll";
+    private static final String TRACE_MOVE_HEADER = "RNL moveHeader";
+    private static final String TRACE_SCROLL_FRAME = "RNL smoothScroll";
+
+    private final Callback mCallback;
+    private FrameClock mFrameClock;
+    private Curve mSettleCurve = Curve.DECELERATE;
+    private Curve mRefreshCurve = Curve.DECELERATE;
+    private Curve mAutoRefreshCurve = Curve.DECELERATE;
+    private Tracer mTracer = Tracer.NONE;
+
+    // true from the moment the refresh listener is called until the refresh completes, is cancelled or times out
+    private boolean mRefreshing;
+    private long mRefreshTimeoutMillis;
+    // the hold between the auto refresh reveal and the settle into the refreshing position is posted
+    private boolean mAutoRefreshPending;
+
+    private RefreshState mCurrentState = RefreshState.NONE;
+
+    // TRANSITIONS[from.ordinal()] has bit to.ordinal() set if the engine may move from one state to the other.
+    // AUTO_REFRESH is a command only, the engine never rests in it.
+    private static final int[] TRANSITIONS = new int[RefreshState.values().length];
+
+    static {
+        allow(RefreshState.NONE, RefreshState.MANUAL_SCROLLING, RefreshState.SCROLL_TO_BACK,
+                RefreshState.SCROLL_TO_REFRESH, RefreshState.REFRESHING);
+        allow(RefreshState.MANUAL_SCROLLING, RefreshState.NONE, RefreshState.SCROLL_TO_BACK,
+                RefreshState.SCROLL_TO_REFRESH, RefreshState.REFRESHING);
+        allow(RefreshState.SCROLL_TO_BACK, RefreshState.NONE, RefreshState.MANUAL_SCROLLING,
+                RefreshState.SCROLL_TO_REFRESH, RefreshState.REFRESHING);
+        allow(RefreshState.SCROLL_TO_REFRESH, RefreshState.NONE, RefreshState.MANUAL_SCROLLING,
+                RefreshState.SCROLL_TO_BACK, RefreshState.REFRESHING);
+        allow(RefreshState.REFRESHING, RefreshState.MANUAL_SCROLLING, RefreshState.SCROLL_TO_BACK,
+                RefreshState.SCROLL_TO_REFRESH);
+    }
+
+    private static void allow(RefreshState from, RefreshState... to) {
+        for (RefreshState state : to) {
+            TRANSITIONS[from.ordinal()] |= 1 << state.ordinal();
+        }
+    }
+
+    private int mRedundantTransitions;
+    private int mIllegalTransitions;
+
+    // the header was shown outside of a refresh and still owes it an onRefreshCancel() once it is hidden again
+    private boolean mHeaderNeedsCancel;
+
+    private int mPullMaxDistance;
+    private int mRefreshingDistance;
+    private int mTouchSlop;
+    private int mScrollDuration = SMOOTH_SCROLL_DURATION_MS;
+    private float mFlingOverscrollDeceleration;
+    private float mMinFlingVelocity;
+
+    // finger velocity of the next release, px/s, positive downwards
+    private float mReleaseVelocity;
+    // header velocity handed from a release to the settle it starts, px/s, positive when opening
+    private float mSettleVelocity;
+
+    // current visible height of the header
+    private int mHeaderOffset;
+
+    // If nested scrolling is enabled, the total amount that needed to be
+    // consumed by this as the nested scrolling parent is used in place of the
+    // overScroll determined by MOVE events in the onTouch handler
+    private float mTotalUnconsumed;
+    private boolean mNestedScrollInProgress;
+
+    private boolean mIsBeingDragged;
+    private int mActivePointerId = INVALID_POINTER;
+
+    private float mInitialMotionY;
+    private float mInitialDownY;
+
+    // one animation driver per engine, restarted in place for every transition
+    private final SmoothScrollRunnable mSmoothScrollRunnable = new SmoothScrollRunnable();
+
+    public RefreshEngine(Callback callback, FrameClock frameClock) {
+        mCallback = callback;
+        mFrameClock = frameClock;
+    }
+
+    // Configuration
+
+    public void setPullMaxDistance(int pullMaxDistance) {
+        mPullMaxDistance = pullMaxDistance;
+    }
+
+    public int getPullMaxDistance() {
+        return mPullMaxDistance;
+    }
+
+    public void setRefreshingDistance(int refreshingDistance) {
+        mRefreshingDistance = refreshingDistance;
+    }
+
+    public int getRefreshingDistance() {
+        return mRefreshingDistance;
+    }
+
+    public void setTouchSlop(int touchSlop) {
+        mTouchSlop = touchSlop;
+    }
+
+    public int getTouchSlop() {
+        return mTouchSlop;
+    }
+
+    public void setScrollDuration(int scrollDuration) {
+        mScrollDuration = scrollDuration;
+    }
+
+    public int getScrollDuration() {
+        return mScrollDuration;
+    }
+
+    /**
+     * @param deceleration deceleration applied to fling momentum carried into the header, in px/s^2.
+     */
+    public void setFlingOverscrollDeceleration(float deceleration) {
+        mFlingOverscrollDeceleration = deceleration;
+    }
+
+    /**
+     * @param velocity release velocities below this, in px/s, are treated as no velocity at all.
+     */
+    public void setMinFlingVelocity(float velocity) {
+        mMinFlingVelocity = velocity;
+    }
+
+    /**
+     * Velocity of the finger, or of the fling it started, at the release that ends the current drag, in px/s and
+     * positive downwards. A fast release lets the header travel further before the refresh threshold is checked,
+     * and starts the settle animation at its speed. Cleared when a new gesture starts.
+     */
+    public void setReleaseVelocity(float velocity) {
+        mReleaseVelocity = velocity;
+    }
+
+    /**
+     * Collapse the header and cancel the refresh if it hasn't completed after the given time, 0 to wait forever.
+     */
+    public void setRefreshTimeout(long timeoutMillis) {
+        mRefreshTimeoutMillis = timeoutMillis;
+    }
+
+    public long getRefreshTimeout() {
+        return mRefreshTimeoutMillis;
+    }
+
+    /**
+     * Curve of the animation that hides the header. Costly curves should be baked with
+     * {@link LookupTableCurve#of(Curve)} first.
+     */
+    public void setSettleCurve(Curve curve) {
+        mSettleCurve = curve;
+    }
+
+    public Curve getSettleCurve() {
+        return mSettleCurve;
+    }
+
+    /**
+     * Curve of the animation from a released pull to the refreshing position.
+     */
+    public void setRefreshCurve(Curve curve) {
+        mRefreshCurve = curve;
+    }
+
+    public Curve getRefreshCurve() {
+        return mRefreshCurve;
+    }
+
+    /**
+     * Curve of the animation that reveals the header for {@link #autoRefresh()}.
+     */
+    public void setAutoRefreshCurve(Curve curve) {
+        mAutoRefreshCurve = curve;
+    }
+
+    public Curve getAutoRefreshCurve() {
+        return mAutoRefreshCurve;
+    }
+
+    public void setTracer(Tracer tracer) {
+        mTracer = tracer;
+    }
+
+    public Tracer getTracer() {
+        return mTracer;
+    }
+
+    public void setFrameClock(FrameClock frameClock) {
+        mFrameClock.removeFrameCallback(mRefreshTimeoutCallback);
+        mFrameClock.removeFrameCallback(mAutoRefreshCallback);
+        mSmoothScrollRunnable.switchClock(frameClock);
+        // the new clock has its own time base, restart the pending delays on it
+        if (mRefreshing && mRefreshTimeoutMillis > 0) {
+            mFrameClock.postFrameCallbackDelayed(mRefreshTimeoutCallback, mRefreshTimeoutMillis);
+        }
+        if (mAutoRefreshPending) {
+            mFrameClock.postFrameCallbackDelayed(mAutoRefreshCallback, AUTO_REFRESH_DELAY_MS);
+        }
+    }
+
+    public FrameClock getFrameClock() {
+        return mFrameClock;
+    }
+
+    // State
+
+    public RefreshState getState() {
+        return mCurrentState;
+    }
+
+    public boolean isRefreshing() {
+        return mCurrentState == RefreshState.REFRESHING;
+    }
+
+    /**
+     * @return true from the settle into the refreshing position until the refresh completes, is cancelled or times
+     * out, including while the header is dragged in the meantime.
+     */
+    public boolean isRefreshInFlight() {
+        return mRefreshing || mCurrentState == RefreshState.SCROLL_TO_REFRESH || mCurrentState == RefreshState.REFRESHING;
+    }
+
+    public boolean isBeingDragged() {
+        return mIsBeingDragged;
+    }
+
+    public boolean isNestedScrollInProgress() {
+        return mNestedScrollInProgress;
+    }
+
+    public int getHeaderOffset() {
+        return mHeaderOffset;
+    }
+
+    /**
+     * @return the number of transitions into the current state again, rejected because they had no effect.
+     */
+    public int getRedundantTransitionCount() {
+        return mRedundantTransitions;
+    }
+
+    /**
+     * @return the number of transitions rejected because the transition table doesn't allow them.
+     */
+    public int getIllegalTransitionCount() {
+        return mIllegalTransitions;
+    }
+
+    private boolean setCurrentState(RefreshState state) {
+        final RefreshState oldState = mCurrentState;
+        if (oldState == state) {
+            mRedundantTransitions++;
+            return false;
+        }
+        if ((TRANSITIONS[oldState.ordinal()] & (1 << state.ordinal())) == 0) {
+            mIllegalTransitions++;
+            return false;
+        }
+        mCurrentState = state;
+        if (state == RefreshState.MANUAL_SCROLLING || state == RefreshState.SCROLL_TO_REFRESH
+                || (state == RefreshState.SCROLL_TO_BACK && oldState == RefreshState.NONE)) {
+            mHeaderNeedsCancel = true;
+        }
+        mCallback.onStateChanged(oldState, state);
+        return true;
+    }
+
+    // Touch input
+
+    public boolean onInterceptTouchEvent(TouchEvent event) {
+        mTracer.beginSection(TRACE_INTERCEPT_TOUCH);
+        try {
+            return interceptTouchEvent(event);
+        } finally {
+            mTracer.endSection();
+        }
+    }
+
+    private boolean interceptTouchEvent(TouchEvent event) {
+        if (mNestedScrollInProgress) {
+            return false;
+        }
+
+        if (mCurrentState == RefreshState.SCROLL_TO_BACK || mCurrentState == RefreshState.SCROLL_TO_REFRESH) {
+            return true;
+        }
+
+        final int action = event.getActionMasked();
+        int pointerIndex;
+
+        if (mCurrentState != RefreshState.REFRESHING && (!mCallback.isEnabled() || mCallback.canChildScrollUp())) {
+            // Fail fast if we're not in a state where a swipe is possible
+            return false;
+        }
+
+        switch (action) {
+            case TouchEvent.ACTION_DOWN: {
+                mActivePointerId = event.getPointerId(0);
+                mIsBeingDragged = false;
+                mReleaseVelocity = 0;
+                pointerIndex = event.findPointerIndex(mActivePointerId);
+                if (pointerIndex < 0) {
+                    return false;
+                }
+                mInitialDownY = event.getY(pointerIndex);
+
+                if (mCurrentState == RefreshState.REFRESHING) {
+                    mInitialDownY -= mRefreshingDistance / DRAG_RATE;
+                }
+                break;
+            }
+            case TouchEvent.ACTION_MOVE: {
+                if (mActivePointerId == INVALID_POINTER) {
+                    return false;
+                }
+                pointerIndex = event.findPointerIndex(mActivePointerId);
+                if (pointerIndex < 0) {
+                    return false;
+                }
+                float y = event.getY(pointerIndex);
+                if (mCurrentState == RefreshState.REFRESHING) {
+                    float yDiff = y - (mInitialDownY + mRefreshingDistance / DRAG_RATE);
+                    if (Math.abs(yDiff) > mTouchSlop && !mIsBeingDragged) {
+                        if (yDiff > 0) {
+                            mInitialMotionY = mInitialDownY + mTouchSlop;
+                        } else {
+                            mInitialMotionY = mInitialDownY - mTouchSlop;
+                        }
+                        mIsBeingDragged = true;
+                    }
+                } else {
+                    float yDiff = y - mInitialDownY;
+                    startDragging(yDiff);
+                }
+                break;
+            }
+            case TouchEvent.ACTION_POINTER_UP: {
+                onSecondaryPointerUp(event);
+                break;
+            }
+            case TouchEvent.ACTION_UP:
+            case TouchEvent.ACTION_CANCEL: {
+                mIsBeingDragged = false;
+                mActivePointerId = INVALID_POINTER;
+                if (mCurrentState != RefreshState.REFRESHING && mHeaderOffset != 0) {
+                    reset();
+                }
+                break;
+            }
+        }
+        return mIsBeingDragged;
+    }
+
+    private void onSecondaryPointerUp(TouchEvent ev) {
+        final int pointerIndex = ev.getActionIndex();
+        final int pointerId = ev.getPointerId(pointerIndex);
+        if (pointerId == mActivePointerId) {
+            // This was our active pointer going up. Choose a new
+            // active pointer and adjust accordingly.
+            final int newPointerIndex = pointerIndex == 0 ? 1 : 0;
+            mActivePointerId = ev.getPointerId(newPointerIndex);
+
+            float activePointerY = ev.getY(newPointerIndex);
+            mInitialDownY = activePointerY - mHeaderOffset / DRAG_RATE - mTouchSlop;
+            mIsBeingDragged = false;
+        }
+    }
+
+    public boolean onTouchEvent(TouchEvent event) {
+        mTracer.beginSection(TRACE_TOUCH);
+        try {
+            return touchEvent(event);
+        } finally {
+            mTracer.endSection();
+        }
+    }
+
+    private boolean touchEvent(TouchEvent event) {
+        final int action = event.getActionMasked();
+
+        if (mNestedScrollInProgress) {
+            return false;
+        }
+
+        int pointerIndex;
+
+        if (mCurrentState == RefreshState.SCROLL_TO_BACK || mCurrentState == RefreshState.SCROLL_TO_REFRESH) {
+            mActivePointerId = event.getPointerId(0);
+            mIsBeingDragged = false;
+            pointerIndex = event.findPointerIndex(mActivePointerId);
+            if (pointerIndex < 0) {
+                return false;
+            }
+            mInitialDownY = event.getY(pointerIndex);
+            mSmoothScrollRunnable.stop();
+            setCurrentState(RefreshState.MANUAL_SCROLLING);
+            mInitialDownY += -mHeaderOffset / DRAG_RATE - mTouchSlop;
+            mInitialMotionY = mInitialDownY;
+            return true;
+        }
+
+        if (mCurrentState == RefreshState.REFRESHING) {
+            mIsBeingDragged = true;
+        } else if (!mCallback.isEnabled() || mCallback.canChildScrollUp()) {
+            // Fail fast if we're not in a state where a swipe is possible
+            return false;
+        }
+
+        switch (action) {
+            case TouchEvent.ACTION_DOWN: {
+                mActivePointerId = event.getPointerId(0);
+                mIsBeingDragged = false;
+                mReleaseVelocity = 0;
+                break;
+            }
+            case TouchEvent.ACTION_MOVE: {
+                pointerIndex = event.findPointerIndex(mActivePointerId);
+                if (pointerIndex < 0) {
+                    return false;
+                }
+
+                final float y = event.getY(pointerIndex);
+                final float yDiff = y - mInitialDownY;
+                startDragging(yDiff);
+
+                final float overScrollTop = (mInitialMotionY - y) * DRAG_RATE;
+                if (mIsBeingDragged) {
+                    if (overScrollTop <= 0) {
+                        moveHeader((int) overScrollTop);
+                    } else {
+                        mSmoothScrollRunnable.stop();
+                        mIsBeingDragged = false;
+                        setHeaderOffset(0);
+                        if (mCurrentState == RefreshState.MANUAL_SCROLLING) {
+                            // pushed back out of sight, the release won't finish this drag so it ends at rest here
+                            onSmoothScrollFinished(null);
+                        }
+                        return false;
+                    }
+                }
+                break;
+            }
+            case TouchEvent.ACTION_POINTER_DOWN: {
+                pointerIndex = event.getActionIndex();
+                if (pointerIndex < 0) {
+                    return false;
+                }
+                float secondPointerY = event.getY(pointerIndex);
+                int secondPointerId = event.getPointerId(pointerIndex);
+
+                mInitialDownY = secondPointerY - mHeaderOffset / DRAG_RATE - mTouchSlop;
+                mActivePointerId = secondPointerId;
+                mIsBeingDragged = false;
+                break;
+            }
+            case TouchEvent.ACTION_POINTER_UP: {
+                onSecondaryPointerUp(event);
+                break;
+            }
+            case TouchEvent.ACTION_CANCEL:
+            case TouchEvent.ACTION_UP: {
+                pointerIndex = event.findPointerIndex(mActivePointerId);
+                if (pointerIndex < 0) {
+                    reset();
+                    return false;
+                }
+
+                if (mIsBeingDragged) {
+                    final float y = event.getY(pointerIndex);
+                    final float overScrollTop = (mInitialMotionY - y) * DRAG_RATE;
+                    mIsBeingDragged = false;
+                    finishHeader(overScrollTop);
+                }
+                mActivePointerId = INVALID_POINTER;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void startDragging(float y) {
+        if (y > mTouchSlop && !mIsBeingDragged) {
+            mInitialMotionY = mInitialDownY + mTouchSlop;
+            mIsBeingDragged = true;
+        }
+    }
+
+    // Nested scroll input
+
+    public void onNestedScrollAccepted() {
+        mReleaseVelocity = 0;
+        mTotalUnconsumed = mCurrentState == RefreshState.REFRESHING ? -mRefreshingDistance / DRAG_RATE : 0;
+        mNestedScrollInProgress = true;
+    }
+
+    /**
+     * @param dy the vertical distance the child is about to scroll.
+     * @return the part of {@code dy} consumed by the header.
+     */
+    public int onNestedPreScroll(int dy) {
+        mTracer.beginSection(TRACE_NESTED_PRE_SCROLL);
+        try {
+            return nestedPreScroll(dy);
+        } finally {
+            mTracer.endSection();
+        }
+    }
+
+    private int nestedPreScroll(int dy) {
+        // If we are in the middle of consuming, a scroll, then we want to move the spinner back up
+        // before allowing the list to scroll
+        int consumed = 0;
+        if (dy > 0) {
+            if (mTotalUnconsumed > 0) {
+                if (dy > mTotalUnconsumed) {
+                    consumed = dy - (int) mTotalUnconsumed;
+                    mTotalUnconsumed = 0;
+                } else {
+                    mTotalUnconsumed -= dy;
+                    consumed = dy;
+                }
+            } else {
+                if (dy > Math.abs(mTotalUnconsumed)) {
+                    consumed = (int) mTotalUnconsumed - dy;
+                    mTotalUnconsumed = 0;
+                } else {
+                    mTotalUnconsumed += dy;
+                    consumed = dy;
+                }
+            }
+            moveHeader(mTotalUnconsumed * DRAG_RATE);
+        }
+        return consumed;
+    }
+
+    /**
+     * @param dy the vertical distance the child and the nested parents left unconsumed.
+     */
+    public void onNestedScroll(int dy) {
+        mTracer.beginSection(TRACE_NESTED_SCROLL);
+        try {
+            if (!mCallback.canChildScrollUp()) {
+                mTotalUnconsumed += dy;
+                moveHeader(mTotalUnconsumed * DRAG_RATE);
+            }
+        } finally {
+            mTracer.endSection();
+        }
+    }
+
+    public void onStopNestedScroll() {
+        mNestedScrollInProgress = false;
+
+        // Finish the spinner for nested scrolling if we ever consumed any
+        // unconsumed nested scroll
+        if (mTotalUnconsumed != 0 && mCurrentState != RefreshState.REFRESHING) {
+            finishHeader(mTotalUnconsumed * DRAG_RATE);
+            mTotalUnconsumed = 0;
+        }
+    }
+
+    /**
+     * A fling reached the top of the child, carry its momentum into a short header overscroll
+     * that decelerates and settles back instead of stopping dead.
+     *
+     * @param velocity current fling velocity towards the top, in px/s.
+     * @return true if the header took over the momentum and the child should stop flinging.
+     */
+    public boolean onFlingReachedTop(float velocity) {
+        if (mCurrentState != RefreshState.NONE || mRefreshing || mIsBeingDragged || mNestedScrollInProgress || mHeaderOffset != 0) {
+            return false;
+        }
+
+        float distance = Math.min(velocity * velocity / (2 * mFlingOverscrollDeceleration), mRefreshingDistance);
+        if (distance < 1) {
+            return false;
+        }
+        long duration = (long) (2000 * distance / velocity);
+        duration = Math.max(MIN_FLING_OVERSCROLL_DURATION_MS, Math.min(duration, mScrollDuration));
+
+        setCurrentState(RefreshState.SCROLL_TO_BACK);
+        // a constant deceleration covers the distance along exactly this curve
+        smoothScrollTo(-(int) distance, duration, 0, Curve.DECELERATE, mOnFlingOverscrollFinishedListener);
+        return true;
+    }
+
+    // Commands
+
+    public void setState(RefreshState state) {
+        switch (state) {
+            case SCROLL_TO_BACK:
+                reset();
+                break;
+            case SCROLL_TO_REFRESH:
+                setCurrentState(RefreshState.SCROLL_TO_REFRESH);
+                scrollToRefreshing();
+                break;
+            case AUTO_REFRESH:
+                setCurrentState(RefreshState.SCROLL_TO_REFRESH);
+                removeAutoRefreshCallback();
+                smoothScrollTo(-mPullMaxDistance, settleDuration(mPullMaxDistance, AUTO_REFRESH_SCROLL_DURATION_MS), 0,
+                        mAutoRefreshCurve, mOnAutoRefreshScrollFinishedListener);
+                break;
+            case REFRESHING:
+                mIsBeingDragged = false;
+                setCurrentState(RefreshState.REFRESHING);
+                break;
+        }
+    }
+
+    private void scrollToRefreshing() {
+        smoothScrollTo(-mRefreshingDistance, settleDuration(mRefreshingDistance, mScrollDuration), 0,
+                mRefreshCurve, mOnSmoothScrollFinishedListener);
+    }
+
+    private void removeAutoRefreshCallback() {
+        mAutoRefreshPending = false;
+        mFrameClock.removeFrameCallback(mAutoRefreshCallback);
+    }
+
+    public void reset() {
+        removeAutoRefreshCallback();
+        mIsBeingDragged = false;
+        mActivePointerId = INVALID_POINTER;
+        if ((mCurrentState == RefreshState.NONE && mHeaderOffset == 0)
+                || (mCurrentState == RefreshState.SCROLL_TO_BACK && mSmoothScrollRunnable.isScrollingBack())) {
+            // already at rest or on the way there, restarting the animation would only cost frames
+            mRedundantTransitions++;
+            mSettleVelocity = 0;
+            return;
+        }
+        setCurrentState(RefreshState.SCROLL_TO_BACK);
+        smoothScrollTo(0, settleDuration(0, mScrollDuration), 0, mSettleCurve, null);
+    }
+
+    /**
+     * Show the header and refresh. A refresh that is already in flight is joined instead of started again,
+     * and a drag in progress is left to decide on its own.
+     */
+    public void autoRefresh() {
+        if (mIsBeingDragged || mNestedScrollInProgress) {
+            return;
+        }
+        if (mRefreshing) {
+            if (mCurrentState != RefreshState.REFRESHING && mCurrentState != RefreshState.SCROLL_TO_REFRESH) {
+                setState(RefreshState.SCROLL_TO_REFRESH);
+            }
+            return;
+        }
+        setState(RefreshState.AUTO_REFRESH);
+    }
+
+    /**
+     * @return false if there was no refresh to complete, e.g. for a stale or duplicate completion.
+     */
+    public boolean refreshComplete() {
+        if (!mRefreshing && mCurrentState != RefreshState.REFRESHING) {
+            // stale or duplicate completion
+            return false;
+        }
+        mRefreshing = false;
+        mFrameClock.removeFrameCallback(mRefreshTimeoutCallback);
+
+        if (mCurrentState == RefreshState.MANUAL_SCROLLING) {
+            return true;
+        }
+        mHeaderNeedsCancel = false;
+        mCallback.onRefreshFinish();
+        setState(RefreshState.SCROLL_TO_BACK);
+        return true;
+    }
+
+    /**
+     * Abandon the refresh in flight and collapse the header, e.g. when the data is no longer needed.
+     */
+    public void cancelRefresh() {
+        if (!mRefreshing) {
+            return;
+        }
+        mRefreshing = false;
+        mFrameClock.removeFrameCallback(mRefreshTimeoutCallback);
+        mCallback.onRefreshAbandoned();
+
+        if (mCurrentState == RefreshState.MANUAL_SCROLLING) {
+            return;
+        }
+        mHeaderNeedsCancel = false;
+        mCallback.onRefreshCancel();
+        setState(RefreshState.SCROLL_TO_BACK);
+    }
+
+    private void callRefreshListener() {
+        if (mCallback.hasRefreshListener()) {
+            setState(RefreshState.REFRESHING);
+            mHeaderNeedsCancel = false;
+            mCallback.onRefreshBegin();
+            if (!mRefreshing) {
+                mRefreshing = true;
+                if (mRefreshTimeoutMillis > 0) {
+                    mFrameClock.postFrameCallbackDelayed(mRefreshTimeoutCallback, mRefreshTimeoutMillis);
+                }
+                mCallback.onRefresh();
+            }
+        } else {
+            mRefreshing = false;
+            setState(RefreshState.SCROLL_TO_BACK);
+        }
+    }
+
+    // Header offset
+
+    private void moveHeader(float needToScrollValue) {
+        mTracer.beginSection(TRACE_MOVE_HEADER);
+        try {
+            applyMoveHeader(needToScrollValue);
+        } finally {
+            mTracer.endSection();
+        }
+    }
+
+    private void applyMoveHeader(float needToScrollValue) {
+        if (needToScrollValue > 0) {
+            return;
+        }
+        if (needToScrollValue == 0) {
+            setHeaderOffset(0);
+            return;
+        }
+
+        float actualScrolledValue;
+        if (needToScrollValue < -mPullMaxDistance) {
+            actualScrolledValue = -mPullMaxDistance;
+        } else {
+            actualScrolledValue = needToScrollValue;
+        }
+        if (mCurrentState != RefreshState.MANUAL_SCROLLING) {
+            // every move of a drag lands here, only its first one is a transition
+            setCurrentState(RefreshState.MANUAL_SCROLLING);
+        }
+        setHeaderOffset(-(int) actualScrolledValue);
+
+        if (actualScrolledValue != 0 && !isRefreshing()) {
+            mCallback.onPull(-needToScrollValue);
+        }
+
+        if (actualScrolledValue < mPullMaxDistance && actualScrolledValue > -mPullMaxDistance) {
+            mCallback.alreadyToRefresh(false);
+        } else {
+            mCallback.alreadyToRefresh(true);
+        }
+    }
+
+    private void finishHeader(float needToScrollValue) {
+        float velocity = Math.abs(mReleaseVelocity) < mMinFlingVelocity ? 0 : mReleaseVelocity * DRAG_RATE;
+        mReleaseVelocity = 0;
+
+        // decide on where the header would stop if it kept its momentum and decelerated like a fling
+        float offset = -needToScrollValue;
+        if (velocity != 0 && mFlingOverscrollDeceleration > 0) {
+            offset += Math.signum(velocity) * velocity * velocity / (2 * mFlingOverscrollDeceleration);
+        }
+        mSettleVelocity = velocity;
+        if (offset >= mPullMaxDistance) {
+            setState(RefreshState.SCROLL_TO_REFRESH);
+        } else {
+            setState(RefreshState.SCROLL_TO_BACK);
+        }
+    }
+
+    /**
+     * Duration of a settle from the current offset to the given one: {@code maxDuration} for a full pull, shorter
+     * for shorter distances, and short enough to keep up with the release velocity when it points towards the
+     * target.
+     */
+    private long settleDuration(int targetOffset, long maxDuration) {
+        final float velocity = mSettleVelocity;
+        mSettleVelocity = 0;
+
+        final int distance = Math.abs(targetOffset - mHeaderOffset);
+        if (distance == 0) {
+            return 0;
+        }
+        float fraction = mPullMaxDistance > 0 ? Math.min(1f, distance / (float) mPullMaxDistance) : 1f;
+        long duration = (long) (maxDuration * Math.sqrt(fraction));
+        if (velocity != 0 && (velocity > 0) == (targetOffset > mHeaderOffset)) {
+            // the default curve starts at twice its average speed
+            duration = Math.min(duration, (long) (2000 * distance / Math.abs(velocity)));
+        }
+        return Math.max(Math.min(MIN_SETTLE_DURATION_MS, maxDuration), duration);
+    }
+
+    private void setHeaderOffset(int offset) {
+        mHeaderOffset = offset;
+        mCallback.onHeaderOffsetChanged(offset);
+    }
+
+    // Animation
+
+    private void smoothScrollTo(int newScrollValue, long duration, long delayMillis, Curve curve, OnSmoothScrollFinishedListener listener) {
+        mSmoothScrollRunnable.stop();
+
+        final int oldScrollValue = -mHeaderOffset;
+
+        if (oldScrollValue != newScrollValue) {
+            mSmoothScrollRunnable.start(oldScrollValue, newScrollValue, duration, delayMillis, curve, listener);
+        } else {
+            onSmoothScrollFinished(listener);
+        }
+    }
+
+    /**
+     * A scroll with a listener hands the state over to it directly, only a plain scroll ends at rest.
+     */
+    private void onSmoothScrollFinished(OnSmoothScrollFinishedListener listener) {
+        if (listener != null) {
+            listener.onSmoothScrollFinished();
+            return;
+        }
+        if (mHeaderOffset == 0 && mHeaderNeedsCancel && !mRefreshing) {
+            mHeaderNeedsCancel = false;
+            mCallback.onRefreshCancel();
+        }
+        setCurrentState(RefreshState.NONE);
+    }
+
+    final class SmoothScrollRunnable implements FrameClock.FrameCallback {
+
+        private int mScrollToY;
+        private int mScrollFromY;
+        private long mFrameIntervalNanos;
+        private int mFrameCount;
+        private Curve mCurve;
+        private OnSmoothScrollFinishedListener mListener;
+
+        private boolean mContinueRunning;
+        private long mStartTimeNanos = -1;
+        private int mCurrentY = -1;
+
+        public void start(int fromY, int toY, long duration, long delayMillis, Curve curve, OnSmoothScrollFinishedListener listener) {
+            stop();
+            mScrollFromY = fromY;
+            mScrollToY = toY;
+            mCurve = curve;
+            mListener = listener;
+            mStartTimeNanos = -1;
+            mCurrentY = -1;
+            mContinueRunning = true;
+
+            // the step count follows the display refresh rate, so 90/120 Hz displays get evenly spaced steps too
+            mFrameIntervalNanos = mFrameClock.getFrameIntervalNanos();
+            mFrameCount = (int) Math.max(1, (duration * 1000000L + mFrameIntervalNanos / 2) / mFrameIntervalNanos);
+
+            if (delayMillis > 0) {
+                mFrameClock.postFrameCallbackDelayed(this, delayMillis);
+            } else {
+                mFrameClock.postFrameCallback(this);
+            }
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (mIsBeingDragged) {
+                return;
+            }
+            mTracer.beginSection(TRACE_SCROLL_FRAME);
+            try {
+                step(frameTimeNanos);
+            } finally {
+                mTracer.endSection();
+            }
+        }
+
+        private void step(long frameTimeNanos) {
+            if (mStartTimeNanos == -1) {
+                // start one frame back, so the very first frame already moves
+                mStartTimeNanos = frameTimeNanos - mFrameIntervalNanos;
+            }
+
+            // round to whole frames of the vsync time base, dropped frames are skipped rather than replayed
+            long frame = (frameTimeNanos - mStartTimeNanos + mFrameIntervalNanos / 2) / mFrameIntervalNanos;
+            float normalizedTime = Math.max(Math.min(frame / (float) mFrameCount, 1f), 0f);
+
+            final int deltaY = Math.round((mScrollFromY - mScrollToY) * mCurve.getInterpolation(normalizedTime));
+            mCurrentY = mScrollFromY - deltaY;
+            setHeaderOffset(-mCurrentY);
+
+            // If we're not at the target Y, keep going...
+            if (mContinueRunning && mScrollToY != mCurrentY) {
+                mFrameClock.postFrameCallback(this);
+            } else {
+                mContinueRunning = false;
+                final OnSmoothScrollFinishedListener listener = mListener;
+                mListener = null;
+                onSmoothScrollFinished(listener);
+            }
+        }
+
+        public void stop() {
+            mContinueRunning = false;
+            mFrameClock.removeFrameCallback(this);
+        }
+
+        boolean isScrollingBack() {
+            return mContinueRunning && mScrollToY == 0 && mListener == null;
+        }
+
+        void switchClock(FrameClock frameClock) {
+            mFrameClock.removeFrameCallback(this);
+            mFrameClock = frameClock;
+            if (mContinueRunning) {
+                // continue from the current offset on the new time base
+                mScrollFromY = -mHeaderOffset;
+                mStartTimeNanos = -1;
+                mFrameIntervalNanos = frameClock.getFrameIntervalNanos();
+                mFrameClock.postFrameCallback(this);
+            }
+        }
+    }
+
+    private final OnSmoothScrollFinishedListener mOnSmoothScrollFinishedListener = new OnSmoothScrollFinishedListener() {
+
+        @Override
+        public void onSmoothScrollFinished() {
+            callRefreshListener();
+        }
+    };
+
+    private final OnSmoothScrollFinishedListener mOnAutoRefreshScrollFinishedListener = new OnSmoothScrollFinishedListener() {
+
+        @Override
+        public void onSmoothScrollFinished() {
+            mAutoRefreshPending = true;
+            mFrameClock.postFrameCallbackDelayed(mAutoRefreshCallback, AUTO_REFRESH_DELAY_MS);
+        }
+    };
+
+    private final OnSmoothScrollFinishedListener mOnFlingOverscrollFinishedListener = new OnSmoothScrollFinishedListener() {
+
+        @Override
+        public void onSmoothScrollFinished() {
+            reset();
+        }
+    };
+
+    private final FrameClock.FrameCallback mAutoRefreshCallback = new FrameClock.FrameCallback() {
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mAutoRefreshPending = false;
+            if (mCurrentState == RefreshState.SCROLL_TO_REFRESH) {
+                // the same auto refresh moving on to the refreshing position, not a transition
+                scrollToRefreshing();
+            } else {
+                setState(RefreshState.SCROLL_TO_REFRESH);
+            }
+        }
+    };
+
+    private final FrameClock.FrameCallback mRefreshTimeoutCallback = new FrameClock.FrameCallback() {
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            cancelRefresh();
+        }
+    };
+
+    interface OnSmoothScrollFinishedListener {
+        void onSmoothScrollFinished();
+    }
+
+    /**
+     * Output of the engine, implemented by the view that hosts it.
+     */
+    public interface Callback {
+
+        boolean isEnabled();
+
+        boolean canChildScrollUp();
+
+        /**
+         * @param offset the new visible height of the header, 0 when hidden.
+         */
+        void onHeaderOffsetChanged(int offset);
+
+        void onPull(float scrollValue);
+
+        void alreadyToRefresh(boolean alreadyToRefresh);
+
+        void onRefreshBegin();
+
+        void onRefreshFinish();
+
+        void onRefreshCancel();
+
+        boolean hasRefreshListener();
+
+        void onRefresh();
+
+        /**
+         * The refresh in flight was cancelled or timed out, any work started for it should be dropped.
+         */
+        void onRefreshAbandoned();
+
+        void onStateChanged(RefreshState oldState, RefreshState newState);
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.eastwood.common.view.core;
+
+public enum RefreshState {
+
+    NONE,
+
+    SCROLL_TO_BACK,
+
+    AUTO_REFRESH,
+
+    SCROLL_TO_REFRESH,
+
+    MANUAL_SCROLLING,
+
+    REFRESHING;
+
+}
@@ -0,0 +1,161 @@
+package com.eastwood.common.view.core;
+
+import java.util.Arrays;
+
+/**
+ * {@link FrameClock} that runs any number of callbacks from a single callback on another clock, so many layouts
+ * on one screen cost one frame callback per frame instead of one each. Callbacks posted with a delay are handed
+ * to the other clock as they are, they are rare and only run once.
+ * <p>
+ * Work that should see the results of every callback of a frame can be posted with
+ * {@link #postFrameCommit(FrameCallback)}, it runs once at the end of the frame. Not thread safe.
+ */
+public class SharedFrameClock implements FrameClock {
+
+    private final FrameClock mClock;
+
+    private FrameCallback[] mCallbacks = new FrameCallback[4];
+    private int mSize;
+    private FrameCallback[] mRunning = new FrameCallback[4];
+    private int mRunningSize;
+
+    private FrameCallback[] mCommits = new FrameCallback[4];
+    private int mCommitSize;
+
+    private boolean mScheduled;
+    private boolean mInFrame;
+
+    private final FrameCallback mTick = new FrameCallback() {
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            runFrame(frameTimeNanos);
+        }
+    };
+
+    public SharedFrameClock(FrameClock clock) {
+        mClock = clock;
+    }
+
+    @Override
+    public void postFrameCallback(FrameCallback callback) {
+        removeFrameCallback(callback);
+        if (mSize == mCallbacks.length) {
+            mCallbacks = Arrays.copyOf(mCallbacks, mSize * 2);
+        }
+        mCallbacks[mSize++] = callback;
+        schedule();
+    }
+
+    @Override
+    public void postFrameCallbackDelayed(FrameCallback callback, long delayMillis) {
+        if (delayMillis <= 0) {
+            postFrameCallback(callback);
+            return;
+        }
+        removeFrameCallback(callback);
+        mClock.postFrameCallbackDelayed(callback, delayMillis);
+    }
+
+    @Override
+    public void removeFrameCallback(FrameCallback callback) {
+        for (int i = 0; i < mSize; i++) {
+            if (mCallbacks[i] == callback) {
+                mSize--;
+                System.arraycopy(mCallbacks, i + 1, mCallbacks, i, mSize - i);
+                mCallbacks[mSize] = null;
+                break;
+            }
+        }
+        if (mInFrame) {
+            // removed by an earlier callback of the same frame, don't run it anymore
+            for (int i = 0; i < mRunningSize; i++) {
+                if (mRunning[i] == callback) {
+                    mRunning[i] = null;
+                }
+            }
+        }
+        mClock.removeFrameCallback(callback);
+    }
+
+    /**
+     * Run the callback once at the end of the current frame, after every frame callback, or at the end of the
+     * next frame when called outside of one. Posting it again before it ran does nothing.
+     */
+    public void postFrameCommit(FrameCallback callback) {
+        for (int i = 0; i < mCommitSize; i++) {
+            if (mCommits[i] == callback) {
+                return;
+            }
+        }
+        if (mCommitSize == mCommits.length) {
+            mCommits = Arrays.copyOf(mCommits, mCommitSize * 2);
+        }
+        mCommits[mCommitSize++] = callback;
+        schedule();
+    }
+
+    public void removeFrameCommit(FrameCallback callback) {
+        for (int i = 0; i < mCommitSize; i++) {
+            if (mCommits[i] == callback) {
+                mCommitSize--;
+                System.arraycopy(mCommits, i + 1, mCommits, i, mCommitSize - i);
+                mCommits[mCommitSize] = null;
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return true while the callbacks of a frame are running.
+     */
+    public boolean isInFrame() {
+        return mInFrame;
+    }
+
+    @Override
+    public long getFrameIntervalNanos() {
+        return mClock.getFrameIntervalNanos();
+    }
+
+    private void schedule() {
+        if (!mScheduled && !mInFrame) {
+            mScheduled = true;
+            mClock.postFrameCallback(mTick);
+        }
+    }
+
+    private void runFrame(long frameTimeNanos) {
+        mScheduled = false;
+        mInFrame = true;
+
+        // callbacks posted while running go to the next frame
+        FrameCallback[] running = mCallbacks;
+        mCallbacks = mRunning;
+        mRunning = running;
+        mRunningSize = mSize;
+        mSize = 0;
+        for (int i = 0; i < mRunningSize; i++) {
+            FrameCallback callback = running[i];
+            running[i] = null;
+            if (callback != null) {
+                callback.doFrame(frameTimeNanos);
+            }
+        }
+        mRunningSize = 0;
+
+        // commits may post more commits, they still run in this frame
+        for (int i = 0; i < mCommitSize; i++) {
+            FrameCallback commit = mCommits[i];
+            mCommits[i] = null;
+            commit.doFrame(frameTimeNanos);
+        }
+        mCommitSize = 0;
+
+        mInFrame = false;
+        if (mSize > 0) {
+            schedule();
+        }
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.eastwood.common.view.core;
+
+/**
+ * The parts of a touch event the {@link RefreshEngine} reads. Actions and pointer indices
+ * follow {@code android.view.MotionEvent}.
+ */
+public interface TouchEvent {
+
+    int ACTION_DOWN = 0;
+    int ACTION_UP = 1;
+    int ACTION_MOVE = 2;
+    int ACTION_CANCEL = 3;
+    int ACTION_POINTER_DOWN = 5;
+    int ACTION_POINTER_UP = 6;
+
+    int getActionMasked();
+
+    int getActionIndex();
+
+    int getPointerCount();
+
+    int getPointerId(int pointerIndex);
+
+    int findPointerIndex(int pointerId);
+
+    float getY(int pointerIndex);
+
+}
@@ -0,0 +1,233 @@
+package com.eastwood.common.view.core;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * A recorded stream of the touch events a {@link RefreshEngine} received, together with the engine configuration
+ * and the child state at each event, so it can be replayed off device, e.g. with the {@code TraceReplayer} of the
+ * JVM only {@code refresh-replay} module.
+ * <p>
+ * Only touch events are recorded. The release velocity handed to {@link RefreshEngine#setReleaseVelocity(float)}
+ * and nested scroll input are not, so a replayed release settles as if the finger stopped, and pulls driven by a
+ * nested scrolling child or its fling don't replay at all.
+ * <p>
+ * The binary format is big endian: the magic {@code RNLT}, a version byte, the configuration, the event count,
+ * then per event the route, flags, action, action index, pointer count, the time since the previous event in
+ * milliseconds and per pointer its id and y.
+ */
+public final class TouchTrace {
+
+    /**
+     * The event was passed to {@link RefreshEngine#onInterceptTouchEvent(TouchEvent)}.
+     */
+    public static final int ROUTE_INTERCEPT = 0;
+
+    /**
+     * The event was passed to {@link RefreshEngine#onTouchEvent(TouchEvent)}.
+     */
+    public static final int ROUTE_TOUCH = 1;
+
+    private static final int FLAG_ENABLED = 1;
+    private static final int FLAG_CHILD_CAN_SCROLL_UP = 1 << 1;
+
+    private static final int MAGIC = 0x524e4c54;
+    private static final int VERSION = 1;
+
+    private final int mPullMaxDistance;
+    private final int mRefreshingDistance;
+    private final int mTouchSlop;
+    private final int mScrollDuration;
+    private final long mFrameIntervalNanos;
+
+    private int mSize;
+    private long[] mTimes = new long[64];
+    private byte[] mRoutes = new byte[64];
+    private byte[] mFlags = new byte[64];
+    private byte[] mActions = new byte[64];
+    private byte[] mActionIndices = new byte[64];
+    // pointers of event i are stored from mPointerStarts[i] to mPointerStarts[i + 1]
+    private int[] mPointerStarts = new int[65];
+    private byte[] mPointerIds = new byte[64];
+    private float[] mPointerYs = new float[64];
+
+    public TouchTrace(int pullMaxDistance, int refreshingDistance, int touchSlop, int scrollDuration, long frameIntervalNanos) {
+        mPullMaxDistance = pullMaxDistance;
+        mRefreshingDistance = refreshingDistance;
+        mTouchSlop = touchSlop;
+        mScrollDuration = scrollDuration;
+        mFrameIntervalNanos = frameIntervalNanos;
+    }
+
+    /**
+     * A trace configured like the given engine.
+     */
+    public static TouchTrace forEngine(RefreshEngine engine) {
+        return new TouchTrace(engine.getPullMaxDistance(), engine.getRefreshingDistance(), engine.getTouchSlop(),
+                engine.getScrollDuration(), engine.getFrameClock().getFrameIntervalNanos());
+    }
+
+    /**
+     * @param route            {@link #ROUTE_INTERCEPT} or {@link #ROUTE_TOUCH}.
+     * @param eventTimeMillis  the time of the event on any monotonic millisecond clock.
+     * @param childCanScrollUp what {@link RefreshEngine.Callback#canChildScrollUp()} answered at this event.
+     */
+    public void append(int route, long eventTimeMillis, TouchEvent event, boolean enabled, boolean childCanScrollUp) {
+        if (mSize == mTimes.length) {
+            int capacity = mSize * 2;
+            mTimes = Arrays.copyOf(mTimes, capacity);
+            mRoutes = Arrays.copyOf(mRoutes, capacity);
+            mFlags = Arrays.copyOf(mFlags, capacity);
+            mActions = Arrays.copyOf(mActions, capacity);
+            mActionIndices = Arrays.copyOf(mActionIndices, capacity);
+            mPointerStarts = Arrays.copyOf(mPointerStarts, capacity + 1);
+        }
+        final int pointerCount = event.getPointerCount();
+        final int start = mPointerStarts[mSize];
+        if (start + pointerCount > mPointerIds.length) {
+            int capacity = Math.max(mPointerIds.length * 2, start + pointerCount);
+            mPointerIds = Arrays.copyOf(mPointerIds, capacity);
+            mPointerYs = Arrays.copyOf(mPointerYs, capacity);
+        }
+
+        mTimes[mSize] = eventTimeMillis;
+        mRoutes[mSize] = (byte) route;
+        mFlags[mSize] = (byte) ((enabled ? FLAG_ENABLED : 0) | (childCanScrollUp ? FLAG_CHILD_CAN_SCROLL_UP : 0));
+        mActions[mSize] = (byte) event.getActionMasked();
+        mActionIndices[mSize] = (byte) event.getActionIndex();
+        for (int i = 0; i < pointerCount; i++) {
+            mPointerIds[start + i] = (byte) event.getPointerId(i);
+            mPointerYs[start + i] = event.getY(i);
+        }
+        mPointerStarts[mSize + 1] = start + pointerCount;
+        mSize++;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public int getPullMaxDistance() {
+        return mPullMaxDistance;
+    }
+
+    public int getRefreshingDistance() {
+        return mRefreshingDistance;
+    }
+
+    public int getTouchSlop() {
+        return mTouchSlop;
+    }
+
+    public int getScrollDuration() {
+        return mScrollDuration;
+    }
+
+    public long getFrameIntervalNanos() {
+        return mFrameIntervalNanos;
+    }
+
+    // Events, by index from 0 to size() - 1
+
+    public long getEventTime(int index) {
+        return mTimes[index];
+    }
+
+    /**
+     * @return {@link #ROUTE_INTERCEPT} or {@link #ROUTE_TOUCH}.
+     */
+    public int getRoute(int index) {
+        return mRoutes[index];
+    }
+
+    public boolean isEnabled(int index) {
+        return (mFlags[index] & FLAG_ENABLED) != 0;
+    }
+
+    public boolean canChildScrollUp(int index) {
+        return (mFlags[index] & FLAG_CHILD_CAN_SCROLL_UP) != 0;
+    }
+
+    public int getAction(int index) {
+        return mActions[index];
+    }
+
+    public int getActionIndex(int index) {
+        return mActionIndices[index];
+    }
+
+    public int getPointerCount(int index) {
+        return mPointerStarts[index + 1] - mPointerStarts[index];
+    }
+
+    public int getPointerId(int index, int pointerIndex) {
+        return mPointerIds[mPointerStarts[index] + pointerIndex];
+    }
+
+    public float getPointerY(int index, int pointerIndex) {
+        return mPointerYs[mPointerStarts[index] + pointerIndex];
+    }
+
+    public void write(OutputStream outputStream) throws IOException {
+        DataOutputStream out = new DataOutputStream(outputStream);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeInt(mPullMaxDistance);
+        out.writeInt(mRefreshingDistance);
+        out.writeInt(mTouchSlop);
+        out.writeInt(mScrollDuration);
+        out.writeLong(mFrameIntervalNanos);
+        out.writeInt(mSize);
+        long lastTime = mSize > 0 ? mTimes[0] : 0;
+        for (int i = 0; i < mSize; i++) {
+            final int start = mPointerStarts[i];
+            final int pointerCount = mPointerStarts[i + 1] - start;
+            out.writeByte(mRoutes[i]);
+            out.writeByte(mFlags[i]);
+            out.writeByte(mActions[i]);
+            out.writeByte(mActionIndices[i]);
+            out.writeByte(pointerCount);
+            out.writeInt((int) (mTimes[i] - lastTime));
+            lastTime = mTimes[i];
+            for (int p = start; p < start + pointerCount; p++) {
+                out.writeByte(mPointerIds[p]);
+                out.writeFloat(mPointerYs[p]);
+            }
+        }
+        out.flush();
+    }
+
+    public static TouchTrace read(InputStream inputStream) throws IOException {
+        DataInputStream in = new DataInputStream(inputStream);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a touch trace");
+        }
+        int version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported touch trace version " + version);
+        }
+        TouchTrace trace = new TouchTrace(in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readLong());
+        final int size = in.readInt();
+        final MutableTouchEvent event = new MutableTouchEvent();
+        long time = 0;
+        for (int i = 0; i < size; i++) {
+            int route = in.readByte();
+            int flags = in.readByte();
+            int action = in.readByte();
+            int actionIndex = in.readByte();
+            int pointerCount = in.readByte();
+            time += in.readInt();
+            event.set(action, actionIndex, pointerCount);
+            for (int p = 0; p < pointerCount; p++) {
+                event.setPointer(p, in.readByte(), in.readFloat());
+            }
+            trace.append(route, time, event, (flags & FLAG_ENABLED) != 0, (flags & FLAG_CHILD_CAN_SCROLL_UP) != 0);
+        }
+        return trace;
+    }
+
+}
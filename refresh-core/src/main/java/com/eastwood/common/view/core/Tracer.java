@@ -0,0 +1,43 @@
+package com.eastwood.common.view.core;
+
+/**
+ * Receives trace sections around the engine's hot paths, so a profiler can attribute time to the layout.
+ * On Android the layout plugs in one backed by systrace, {@link #NONE} keeps the engine free of any cost on
+ * the JVM and when tracing is off.
+ */
+public interface Tracer {
+
+    Tracer NONE = new Tracer() {
+
+        @Override
+        public void beginSection(String name) {
+        }
+
+        @Override
+        public void endSection() {
+        }
+
+        @Override
+        public void beginAsyncSection(String name, int cookie) {
+        }
+
+        @Override
+        public void endAsyncSection(String name, int cookie) {
+        }
+    };
+
+    /**
+     * Begin a section on the current thread, sections nest and must be ended on the same thread.
+     */
+    void beginSection(String name);
+
+    void endSection();
+
+    /**
+     * Begin a section that may end on another thread or frame, identified by its name and cookie.
+     */
+    void beginAsyncSection(String name, int cookie);
+
+    void endAsyncSection(String name, int cookie);
+
+}
@@ -0,0 +1,32 @@
+package com.eastwood.common.view.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class LookupTableCurveTest {
+
+    @Test
+    public void cubicBezierTablesAreSharedByControlPoints() {
+        LookupTableCurve curve = LookupTableCurve.cubicBezier(0.4f, 0f, 0.2f, 1f);
+
+        assertSame(curve, LookupTableCurve.cubicBezier(0.4f, 0f, 0.2f, 1f));
+        assertNotSame(curve, LookupTableCurve.cubicBezier(0.4f, 0f, 0.6f, 1f));
+    }
+
+    @Test
+    public void cubicBezierRunsFromZeroToOne() {
+        LookupTableCurve curve = LookupTableCurve.cubicBezier(0.25f, 0.1f, 0.25f, 1f);
+
+        assertEquals(0f, curve.getInterpolation(0f), 1e-4f);
+        assertEquals(1f, curve.getInterpolation(1f), 1e-4f);
+    }
+
+    @Test
+    public void bakedCurvesAreSharedBySource() {
+        assertSame(LookupTableCurve.of(Curve.DECELERATE), LookupTableCurve.of(Curve.DECELERATE));
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.eastwood.common.view.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+public class RefreshEngineAllocationTest {
+
+    private static final int WARM_UP_CYCLES = 200;
+    private static final int MEASURED_CYCLES = 100;
+
+    @Test
+    public void pullRefreshCollapseCycleDoesNotAllocate() {
+        assumeTrue("needs per thread allocation counters", AllocationProbe.currentThreadAllocatedBytes() >= 0);
+
+        ManualFrameClock clock = new ManualFrameClock();
+        HeadlessCallback callback = new HeadlessCallback();
+        RefreshEngine engine = TestEngines.create(callback, clock);
+        MutableTouchEvent event = new MutableTouchEvent();
+
+        // class loading and the lazily grown frame callback queue allocate
+        runCycles(engine, clock, event, WARM_UP_CYCLES);
+
+        long before = AllocationProbe.currentThreadAllocatedBytes();
+        runCycles(engine, clock, event, MEASURED_CYCLES);
+        long after = AllocationProbe.currentThreadAllocatedBytes();
+
+        assertEquals(WARM_UP_CYCLES + MEASURED_CYCLES, callback.getRefreshCount());
+        assertEquals(RefreshState.NONE, engine.getState());
+        assertEquals(0, after - before);
+    }
+
+    private static void runCycles(RefreshEngine engine, ManualFrameClock clock, MutableTouchEvent event, int cycles) {
+        for (int i = 0; i < cycles; i++) {
+            TestEngines.drag(engine, event, 100, 900, 40);
+            clock.advanceUntilIdle(1000);
+        }
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.eastwood.common.view.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RefreshEngineFrameTest {
+
+    private static final int MAX_FRAMES = 1000;
+
+    @Test
+    public void releasedFullPullSettlesToRefreshingInSixteenFrames() {
+        ManualFrameClock clock = new ManualFrameClock(60f);
+        HeadlessCallback callback = new HeadlessCallback();
+        callback.setRefreshDuration(-1);
+        RefreshEngine engine = TestEngines.create(callback, clock);
+
+        TestEngines.drag(engine, new MutableTouchEvent(), 100, 900, 40);
+        assertEquals(RefreshState.SCROLL_TO_REFRESH, engine.getState());
+
+        // 300 of 400 px: 300 ms * sqrt(0.75) = 260 ms, 16 frames at 60 Hz
+        assertEquals(16, clock.advanceUntilIdle(MAX_FRAMES));
+        assertEquals(RefreshState.REFRESHING, engine.getState());
+        assertEquals(100, callback.getHeaderOffset());
+    }
+
+    @Test
+    public void collapseAfterRefreshTakesNineFrames() {
+        ManualFrameClock clock = new ManualFrameClock(60f);
+        HeadlessCallback callback = new HeadlessCallback();
+        RefreshEngine engine = startRefresh(callback, clock);
+
+        engine.refreshComplete();
+
+        // 100 of 400 px: 300 ms * sqrt(0.25) = 150 ms, 9 frames at 60 Hz
+        assertEquals(9, clock.advanceUntilIdle(MAX_FRAMES));
+        assertEquals(RefreshState.NONE, engine.getState());
+        assertEquals(0, callback.getHeaderOffset());
+        assertEquals(1, callback.getRefreshFinishCount());
+    }
+
+    @Test
+    public void collapseFrameCountFollowsTheRefreshRate() {
+        ManualFrameClock clock = new ManualFrameClock(120f);
+        HeadlessCallback callback = new HeadlessCallback();
+        RefreshEngine engine = startRefresh(callback, clock);
+
+        engine.refreshComplete();
+
+        // the same 150 ms are 18 frames at 120 Hz, the 17th already rounds to the resting offset
+        assertEquals(17, clock.advanceUntilIdle(MAX_FRAMES));
+        assertEquals(RefreshState.NONE, engine.getState());
+    }
+
+    @Test
+    public void everyCollapseFrameMovesTheHeader() {
+        ManualFrameClock clock = new ManualFrameClock(60f);
+        HeadlessCallback callback = new HeadlessCallback();
+        RefreshEngine engine = startRefresh(callback, clock);
+
+        engine.refreshComplete();
+        int previous = callback.getHeaderOffset();
+        while (clock.hasPendingCallbacks()) {
+            clock.advanceFrame();
+            assertTrue(callback.getHeaderOffset() < previous);
+            previous = callback.getHeaderOffset();
+        }
+        assertEquals(0, previous);
+    }
+
+    /**
+     * @return an engine resting in {@link RefreshState#REFRESHING} with nothing pending on the clock.
+     */
+    private static RefreshEngine startRefresh(HeadlessCallback callback, ManualFrameClock clock) {
+        callback.setRefreshDuration(-1);
+        RefreshEngine engine = TestEngines.create(callback, clock);
+        TestEngines.drag(engine, new MutableTouchEvent(), 100, 900, 40);
+        clock.advanceUntilIdle(MAX_FRAMES);
+        assertEquals(RefreshState.REFRESHING, engine.getState());
+        return engine;
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.eastwood.common.view.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RefreshEngineStateTest {
+
+    private static final int MAX_FRAMES = 1000;
+
+    @Test
+    public void dragPushedBackAboveItsStartEndsAtRest() {
+        ManualFrameClock clock = new ManualFrameClock();
+        HeadlessCallback callback = new HeadlessCallback();
+        RefreshEngine engine = TestEngines.create(callback, clock);
+        MutableTouchEvent event = new MutableTouchEvent();
+
+        TestEngines.down(engine, event, 100);
+        engine.onTouchEvent(event.set(TouchEvent.ACTION_MOVE, 200));
+        assertEquals(RefreshState.MANUAL_SCROLLING, engine.getState());
+        engine.onTouchEvent(event.set(TouchEvent.ACTION_MOVE, 50));
+        engine.onTouchEvent(event.set(TouchEvent.ACTION_UP, 50));
+
+        assertEquals(RefreshState.NONE, engine.getState());
+        assertEquals(0, callback.getHeaderOffset());
+        assertEquals(1, callback.getRefreshCancelCount());
+        assertEquals(0, engine.getIllegalTransitionCount());
+        assertEquals(0, clock.advanceUntilIdle(MAX_FRAMES));
+
+        // and the next pull starts from scratch
+        TestEngines.drag(engine, event, 100, 900, 40);
+        clock.advanceUntilIdle(MAX_FRAMES);
+        assertEquals(1, callback.getRefreshCount());
+        assertEquals(RefreshState.NONE, engine.getState());
+    }
+
+    @Test
+    public void autoRefreshCycleRecordsNoRedundantTransitions() {
+        ManualFrameClock clock = new ManualFrameClock();
+        HeadlessCallback callback = new HeadlessCallback();
+        RefreshEngine engine = TestEngines.create(callback, clock);
+
+        engine.autoRefresh();
+        clock.advanceUntilIdle(MAX_FRAMES);
+
+        assertEquals(1, callback.getRefreshCount());
+        assertEquals(RefreshState.NONE, engine.getState());
+        // NONE -> SCROLL_TO_REFRESH -> REFRESHING -> SCROLL_TO_BACK -> NONE
+        assertEquals(4, callback.getStateChangeCount());
+        assertEquals(0, engine.getRedundantTransitionCount());
+        assertEquals(0, engine.getIllegalTransitionCount());
+    }
+
+    @Test
+    public void autoRefreshHoldSurvivesAFrameClockSwitch() {
+        ManualFrameClock clock = new ManualFrameClock();
+        HeadlessCallback callback = new HeadlessCallback();
+        RefreshEngine engine = TestEngines.create(callback, clock);
+
+        engine.autoRefresh();
+        // reveal the header up to the hold before the settle into the refreshing position
+        while (callback.getHeaderOffset() < 400) {
+            clock.advanceFrame();
+        }
+        assertTrue(clock.hasPendingCallbacks());
+
+        ManualFrameClock newClock = new ManualFrameClock(120f);
+        engine.setFrameClock(newClock);
+        assertFalse(clock.hasPendingCallbacks());
+        newClock.advanceUntilIdle(MAX_FRAMES);
+
+        assertEquals(1, callback.getRefreshCount());
+        assertEquals(RefreshState.NONE, engine.getState());
+        assertEquals(0, callback.getHeaderOffset());
+        assertEquals(0, engine.getIllegalTransitionCount());
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.eastwood.common.view.core;
+
+/**
+ * Engines configured with round numbers and the gestures the tests drive them with.
+ */
+final class TestEngines {
+
+    private TestEngines() {
+    }
+
+    /**
+     * An engine on the given clock reporting to {@code callback}: pulls clamp at 400 px, refreshes rest at 100 px,
+     * the touch slop is 10 px and full settles take 300 ms.
+     */
+    static RefreshEngine create(HeadlessCallback callback, FrameClock frameClock) {
+        RefreshEngine engine = callback.createEngine(frameClock);
+        engine.setPullMaxDistance(400);
+        engine.setRefreshingDistance(100);
+        engine.setTouchSlop(10);
+        engine.setScrollDuration(300);
+        return engine;
+    }
+
+    /**
+     * Put a finger down where no child takes it: the layout sees the down in onInterceptTouchEvent and then in
+     * onTouchEvent, which gets every later event of the gesture.
+     */
+    static void down(RefreshEngine engine, MutableTouchEvent event, float y) {
+        engine.onInterceptTouchEvent(event.set(TouchEvent.ACTION_DOWN, y));
+        engine.onTouchEvent(event);
+    }
+
+    /**
+     * Drag one finger from {@code fromY} to {@code toY} in {@code moves} steps and lift it.
+     */
+    static void drag(RefreshEngine engine, MutableTouchEvent event, float fromY, float toY, int moves) {
+        down(engine, event, fromY);
+        for (int i = 1; i <= moves; i++) {
+            engine.onTouchEvent(event.set(TouchEvent.ACTION_MOVE, fromY + (toY - fromY) * i / moves));
+        }
+        engine.onTouchEvent(event.set(TouchEvent.ACTION_UP, toY));
+    }
+
+}
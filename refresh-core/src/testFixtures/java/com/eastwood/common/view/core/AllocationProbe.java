@@ -0,0 +1,29 @@
+package com.eastwood.common.view.core;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Per thread allocation counter of HotSpot based VMs, for checking that engine paths don't allocate.
+ */
+public final class AllocationProbe {
+
+    // looked up once, the lookup itself allocates
+    private static final java.lang.management.ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+
+    private AllocationProbe() {
+    }
+
+    /**
+     * @return the bytes allocated by the current thread so far, or -1 if the VM can't tell.
+     */
+    public static long currentThreadAllocatedBytes() {
+        if (THREAD_BEAN instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) THREAD_BEAN;
+            if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled()) {
+                return hotspot.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+}
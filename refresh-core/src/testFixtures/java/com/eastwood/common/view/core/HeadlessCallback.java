@@ -0,0 +1,163 @@
+package com.eastwood.common.view.core;
+
+/**
+ * Engine output without a view, for tests, benchmarks and replays on a plain JVM: counts what the engine reports
+ * and completes refreshes after {@link #setRefreshDuration(long)} on the engine's frame clock. Nothing here
+ * allocates once constructed.
+ */
+public class HeadlessCallback implements RefreshEngine.Callback {
+
+    private RefreshEngine mEngine;
+
+    private boolean mEnabled = true;
+    private boolean mChildCanScrollUp;
+    private boolean mHasRefreshListener = true;
+    private long mRefreshDurationMillis = 1000;
+
+    private int mHeaderOffset;
+    private int mHeaderOffsetChanges;
+    private int mRefreshes;
+    private int mRefreshFinishes;
+    private int mRefreshCancels;
+    private int mStateChanges;
+    private RefreshState mState = RefreshState.NONE;
+
+    private final FrameClock.FrameCallback mCompleteRefresh = new FrameClock.FrameCallback() {
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mEngine.refreshComplete();
+        }
+    };
+
+    /**
+     * @return a new engine on the given clock that reports to this callback, not configured yet.
+     */
+    public RefreshEngine createEngine(FrameClock frameClock) {
+        mEngine = new RefreshEngine(this, frameClock);
+        return mEngine;
+    }
+
+    public RefreshEngine getEngine() {
+        return mEngine;
+    }
+
+    public void setEnabled(boolean enabled) {
+        mEnabled = enabled;
+    }
+
+    /**
+     * What the simulated child answers to {@link #canChildScrollUp()}, false by default.
+     */
+    public void setChildCanScrollUp(boolean childCanScrollUp) {
+        mChildCanScrollUp = childCanScrollUp;
+    }
+
+    public void setHasRefreshListener(boolean hasRefreshListener) {
+        mHasRefreshListener = hasRefreshListener;
+    }
+
+    /**
+     * How long a refresh takes before it completes, 1s by default. 0 completes it from within
+     * {@link #onRefresh()}, a negative duration never completes it.
+     */
+    public void setRefreshDuration(long refreshDurationMillis) {
+        mRefreshDurationMillis = refreshDurationMillis;
+    }
+
+    /**
+     * @return the header offset last reported.
+     */
+    public int getHeaderOffset() {
+        return mHeaderOffset;
+    }
+
+    public int getHeaderOffsetChanges() {
+        return mHeaderOffsetChanges;
+    }
+
+    public int getRefreshCount() {
+        return mRefreshes;
+    }
+
+    public int getRefreshFinishCount() {
+        return mRefreshFinishes;
+    }
+
+    public int getRefreshCancelCount() {
+        return mRefreshCancels;
+    }
+
+    public int getStateChangeCount() {
+        return mStateChanges;
+    }
+
+    public RefreshState getState() {
+        return mState;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return mEnabled;
+    }
+
+    @Override
+    public boolean canChildScrollUp() {
+        return mChildCanScrollUp;
+    }
+
+    @Override
+    public void onHeaderOffsetChanged(int offset) {
+        mHeaderOffset = offset;
+        mHeaderOffsetChanges++;
+    }
+
+    @Override
+    public void onPull(float scrollValue) {
+    }
+
+    @Override
+    public void alreadyToRefresh(boolean alreadyToRefresh) {
+    }
+
+    @Override
+    public void onRefreshBegin() {
+    }
+
+    @Override
+    public void onRefreshFinish() {
+        mRefreshFinishes++;
+    }
+
+    @Override
+    public void onRefreshCancel() {
+        mRefreshCancels++;
+    }
+
+    @Override
+    public boolean hasRefreshListener() {
+        return mHasRefreshListener;
+    }
+
+    @Override
+    public void onRefresh() {
+        mRefreshes++;
+        if (mRefreshDurationMillis == 0) {
+            mEngine.refreshComplete();
+        } else if (mRefreshDurationMillis > 0) {
+            mEngine.getFrameClock().postFrameCallbackDelayed(mCompleteRefresh, mRefreshDurationMillis);
+        }
+    }
+
+    @Override
+    public void onRefreshAbandoned() {
+        mEngine.getFrameClock().removeFrameCallback(mCompleteRefresh);
+    }
+
+    @Override
+    public void onStateChanged(RefreshState oldState, RefreshState newState) {
+        mState = newState;
+        mStateChanges++;
+    }
+
+}
@@ -0,0 +1,134 @@
+package com.eastwood.common.view.replay;
+
+import com.eastwood.common.view.core.RefreshState;
+
+import java.util.Arrays;
+
+/**
+ * What a {@link TraceReplayer} run observed, frame by frame.
+ */
+public final class ReplayReport {
+
+    private static final RefreshState[] STATES = RefreshState.values();
+
+    int mFrames;
+    int[] mHeaderOffsets;
+
+    int mTransitions;
+    int[] mTransitionFrames;
+    byte[] mTransitionFrom;
+    byte[] mTransitionTo;
+
+    int mHeaderOffsetChanges;
+    int mRefreshes;
+    long mAllocatedBytes = -1;
+
+    ReplayReport(int expectedFrames, int expectedTransitions) {
+        mHeaderOffsets = new int[Math.max(expectedFrames, 1)];
+        mTransitionFrames = new int[Math.max(expectedTransitions, 1)];
+        mTransitionFrom = new byte[mTransitionFrames.length];
+        mTransitionTo = new byte[mTransitionFrames.length];
+    }
+
+    void onFrame(int headerOffset) {
+        if (mFrames == mHeaderOffsets.length) {
+            mHeaderOffsets = Arrays.copyOf(mHeaderOffsets, mFrames * 2);
+        }
+        mHeaderOffsets[mFrames++] = headerOffset;
+    }
+
+    void onTransition(RefreshState from, RefreshState to) {
+        if (mTransitions == mTransitionFrames.length) {
+            int capacity = mTransitions * 2;
+            mTransitionFrames = Arrays.copyOf(mTransitionFrames, capacity);
+            mTransitionFrom = Arrays.copyOf(mTransitionFrom, capacity);
+            mTransitionTo = Arrays.copyOf(mTransitionTo, capacity);
+        }
+        mTransitionFrames[mTransitions] = mFrames;
+        mTransitionFrom[mTransitions] = (byte) from.ordinal();
+        mTransitionTo[mTransitions] = (byte) to.ordinal();
+        mTransitions++;
+    }
+
+    public int getFrameCount() {
+        return mFrames;
+    }
+
+    /**
+     * @return the visible header height at the end of the given frame.
+     */
+    public int getHeaderOffset(int frame) {
+        return mHeaderOffsets[frame];
+    }
+
+    public int getTransitionCount() {
+        return mTransitions;
+    }
+
+    /**
+     * @return the number of frames produced before the transition happened.
+     */
+    public int getTransitionFrame(int index) {
+        return mTransitionFrames[index];
+    }
+
+    public RefreshState getTransitionFrom(int index) {
+        return STATES[mTransitionFrom[index]];
+    }
+
+    public RefreshState getTransitionTo(int index) {
+        return STATES[mTransitionTo[index]];
+    }
+
+    /**
+     * @return how often the header offset changed, each one is a layout pass in the resize header offset mode.
+     */
+    public int getHeaderOffsetChanges() {
+        return mHeaderOffsetChanges;
+    }
+
+    /**
+     * @return the number of frames that ended with the header at another offset than the frame before, changes
+     * within one frame share its layout pass, so this is the number of layout passes or redraws on a device.
+     */
+    public int getMovingFrameCount() {
+        int moving = 0;
+        int previous = 0;
+        for (int i = 0; i < mFrames; i++) {
+            if (mHeaderOffsets[i] != previous) {
+                moving++;
+                previous = mHeaderOffsets[i];
+            }
+        }
+        return moving;
+    }
+
+    public int getRefreshCount() {
+        return mRefreshes;
+    }
+
+    /**
+     * @return the bytes allocated on the replaying thread while the engine ran, or -1 if the VM can't tell.
+     */
+    public long getAllocatedBytes() {
+        return mAllocatedBytes;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("ReplayReport{frames=").append(mFrames)
+                .append(", headerOffsetChanges=").append(mHeaderOffsetChanges)
+                .append(", movingFrames=").append(getMovingFrameCount())
+                .append(", refreshes=").append(mRefreshes)
+                .append(", allocatedBytes=").append(mAllocatedBytes)
+                .append(", transitions=[");
+        for (int i = 0; i < mTransitions; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(mTransitionFrames[i]).append(':').append(getTransitionFrom(i)).append("->").append(getTransitionTo(i));
+        }
+        return builder.append("]}").toString();
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.eastwood.common.view.replay;
+
+import com.eastwood.common.view.core.AllocationProbe;
+import com.eastwood.common.view.core.HeadlessCallback;
+import com.eastwood.common.view.core.ManualFrameClock;
+import com.eastwood.common.view.core.MutableTouchEvent;
+import com.eastwood.common.view.core.RefreshEngine;
+import com.eastwood.common.view.core.RefreshState;
+import com.eastwood.common.view.core.TouchTrace;
+
+/**
+ * Replays a {@link TouchTrace} through a fresh {@link RefreshEngine} on a {@link ManualFrameClock}, so a touch
+ * stream recorded on a device runs the same way on a plain JVM, e.g. as a regression or performance test.
+ * <p>
+ * Events are delivered on the frame the recording put them in, and the child state and enabled flag are those
+ * recorded with each event. Refreshes complete after {@link #setRefreshDuration(long)}. Traces hold touch events
+ * only: flicked releases replay without their velocity and nested scrolling pulls are missing, see
+ * {@link TouchTrace}.
+ */
+public final class TraceReplayer {
+
+    private static final int MAX_SETTLE_FRAMES = 1000;
+
+    private long mRefreshDurationMillis = 1000;
+
+    /**
+     * How long a simulated refresh takes before it completes, 1s by default.
+     */
+    public void setRefreshDuration(long refreshDurationMillis) {
+        mRefreshDurationMillis = refreshDurationMillis;
+    }
+
+    public ReplayReport replay(TouchTrace trace) {
+        final long frameIntervalNanos = trace.getFrameIntervalNanos();
+        final ManualFrameClock clock = new ManualFrameClock(1000000000f / frameIntervalNanos);
+        final int size = trace.size();
+        final long startMillis = size > 0 ? trace.getEventTime(0) : 0;
+        final long spanNanos = size > 0 ? (trace.getEventTime(size - 1) - startMillis) * 1000000L : 0;
+
+        // sized up front so the report itself doesn't allocate during the measured run
+        final ReplayReport report = new ReplayReport((int) (spanNanos / frameIntervalNanos) + MAX_SETTLE_FRAMES + 1, size + 16);
+        final HeadlessCallback callback = new HeadlessCallback() {
+
+            @Override
+            public void onStateChanged(RefreshState oldState, RefreshState newState) {
+                super.onStateChanged(oldState, newState);
+                report.onTransition(oldState, newState);
+            }
+        };
+        callback.setRefreshDuration(mRefreshDurationMillis);
+        final RefreshEngine engine = callback.createEngine(clock);
+        engine.setPullMaxDistance(trace.getPullMaxDistance());
+        engine.setRefreshingDistance(trace.getRefreshingDistance());
+        engine.setTouchSlop(trace.getTouchSlop());
+        engine.setScrollDuration(trace.getScrollDuration());
+        final MutableTouchEvent event = new MutableTouchEvent();
+
+        final long allocatedBefore = AllocationProbe.currentThreadAllocatedBytes();
+        for (int i = 0; i < size; i++) {
+            final long dueNanos = (trace.getEventTime(i) - startMillis) * 1000000L;
+            while (clock.getFrameTimeNanos() + frameIntervalNanos <= dueNanos) {
+                clock.advanceFrame();
+                report.onFrame(engine.getHeaderOffset());
+            }
+            callback.setEnabled(trace.isEnabled(i));
+            callback.setChildCanScrollUp(trace.canChildScrollUp(i));
+            final int pointerCount = trace.getPointerCount(i);
+            event.set(trace.getAction(i), trace.getActionIndex(i), pointerCount);
+            for (int p = 0; p < pointerCount; p++) {
+                event.setPointer(p, trace.getPointerId(i, p), trace.getPointerY(i, p));
+            }
+            if (trace.getRoute(i) == TouchTrace.ROUTE_INTERCEPT) {
+                engine.onInterceptTouchEvent(event);
+            } else {
+                engine.onTouchEvent(event);
+            }
+        }
+        for (int frames = 0; clock.hasPendingCallbacks() && frames < MAX_SETTLE_FRAMES; frames++) {
+            clock.advanceFrame();
+            report.onFrame(engine.getHeaderOffset());
+        }
+        final long allocatedAfter = AllocationProbe.currentThreadAllocatedBytes();
+        if (allocatedBefore >= 0 && allocatedAfter >= 0) {
+            report.mAllocatedBytes = allocatedAfter - allocatedBefore;
+        }
+        report.mHeaderOffsetChanges = callback.getHeaderOffsetChanges();
+        report.mRefreshes = callback.getRefreshCount();
+        return report;
+    }
+
+}
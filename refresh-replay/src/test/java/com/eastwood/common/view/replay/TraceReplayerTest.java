@@ -0,0 +1,98 @@
+package com.eastwood.common.view.replay;
+
+import com.eastwood.common.view.core.MutableTouchEvent;
+import com.eastwood.common.view.core.RefreshState;
+import com.eastwood.common.view.core.TouchEvent;
+import com.eastwood.common.view.core.TouchTrace;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TraceReplayerTest {
+
+    private static final long FRAME_INTERVAL_NANOS = 1000000000L / 60;
+    private static final int TOUCH_SLOP = 10;
+
+    @Test
+    public void fullPullRefreshesOnceAndReturnsToRest() {
+        ReplayReport report = new TraceReplayer().replay(pull(false));
+
+        assertEquals(1, report.getRefreshCount());
+        assertEquals(RefreshState.NONE, report.getTransitionFrom(0));
+        assertEquals(RefreshState.MANUAL_SCROLLING, report.getTransitionTo(0));
+        assertEquals(RefreshState.NONE, report.getTransitionTo(report.getTransitionCount() - 1));
+        assertEquals(0, report.getHeaderOffset(report.getFrameCount() - 1));
+        assertTrue(report.getMovingFrameCount() > 0);
+        assertTrue(report.getMovingFrameCount() <= report.getFrameCount());
+    }
+
+    @Test
+    public void childThatCanScrollUpKeepsTheGesture() {
+        ReplayReport report = new TraceReplayer().replay(pull(true));
+
+        assertEquals(0, report.getRefreshCount());
+        assertEquals(0, report.getTransitionCount());
+        assertEquals(0, report.getHeaderOffsetChanges());
+    }
+
+    @Test
+    public void refreshDurationDelaysTheCollapse() {
+        TraceReplayer replayer = new TraceReplayer();
+        replayer.setRefreshDuration(500);
+        int shortRefreshFrames = replayer.replay(pull(false)).getFrameCount();
+        replayer.setRefreshDuration(1000);
+        int longRefreshFrames = replayer.replay(pull(false)).getFrameCount();
+
+        // 500 ms more at 60 Hz
+        assertEquals(30, longRefreshFrames - shortRefreshFrames);
+    }
+
+    @Test
+    public void writtenTraceReplaysLikeTheOriginal() throws IOException {
+        TouchTrace trace = pull(false);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        trace.write(out);
+        TouchTrace read = TouchTrace.read(new ByteArrayInputStream(out.toByteArray()));
+
+        ReplayReport original = new TraceReplayer().replay(trace);
+        ReplayReport replayed = new TraceReplayer().replay(read);
+
+        assertEquals(trace.size(), read.size());
+        assertEquals(original.getFrameCount(), replayed.getFrameCount());
+        assertEquals(original.getTransitionCount(), replayed.getTransitionCount());
+        for (int i = 0; i < original.getFrameCount(); i++) {
+            assertEquals(original.getHeaderOffset(i), replayed.getHeaderOffset(i));
+        }
+    }
+
+    /**
+     * A trace of one finger dragging 800 px down in 40 moves, 8 ms apart, routed like a ViewGroup does: the down
+     * and the moves up to the one that crosses the touch slop go to onInterceptTouchEvent, the rest to
+     * onTouchEvent once the layout intercepted. A child that can scroll up keeps the whole gesture.
+     */
+    private static TouchTrace pull(boolean childCanScrollUp) {
+        TouchTrace trace = new TouchTrace(400, 100, TOUCH_SLOP, 300, FRAME_INTERVAL_NANOS);
+        MutableTouchEvent event = new MutableTouchEvent();
+        long time = 1000;
+        int route = TouchTrace.ROUTE_INTERCEPT;
+        trace.append(route, time, event.set(TouchEvent.ACTION_DOWN, 100), true, childCanScrollUp);
+        for (int i = 1; i <= 40; i++) {
+            time += 8;
+            float y = 100 + 20 * i;
+            trace.append(route, time, event.set(TouchEvent.ACTION_MOVE, y), true, childCanScrollUp);
+            if (!childCanScrollUp && y - 100 > TOUCH_SLOP) {
+                route = TouchTrace.ROUTE_TOUCH;
+            }
+        }
+        time += 8;
+        trace.append(route, time, event.set(TouchEvent.ACTION_UP, 900), true, childCanScrollUp);
+        return trace;
+    }
+
+}